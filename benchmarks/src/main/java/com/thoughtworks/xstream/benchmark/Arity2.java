@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.benchmark;
+
+import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+
+/**
+ * Immutable record with 2 constructor parameters, alternating strings and ints.
+ */
+public class Arity2 {
+
+    private final String f0;
+    private final int f1;
+
+    @XStreamUnmarshalling({"f0", "f1"})
+    public Arity2(String f0, int f1) {
+        this.f0 = f0;
+        this.f1 = f1;
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.reflection.ConstructorConverter;
+import com.thoughtworks.xstream.converters.reflection.ConstructorConverterRegistry;
+
+/**
+ * Cost of building converters, with and without the metadata and parameter names caches, and of the
+ * start up of a configured XStream instance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"--add-opens", "java.base/java.util=ALL-UNNAMED", "--add-opens", "java.base/java.lang=ALL-UNNAMED",
+    "--add-opens", "java.base/java.text=ALL-UNNAMED", "--add-opens", "java.desktop/java.awt.font=ALL-UNNAMED"})
+public class BuildBenchmark {
+
+    @Param({Fixtures.EXPLICIT, Fixtures.ANNOTATION, Fixtures.GENERATED, Fixtures.PARANAMER})
+    private String style;
+
+    private Class<?> type;
+    private Class<?>[] types;
+
+    @Setup
+    public void setUp() {
+        type = Fixtures.recordOfArity(50, style);
+        types = new Class<?>[] {Fixtures.recordOfArity(2, style), Fixtures.recordOfArity(10, style), type};
+    }
+
+    @Benchmark
+    public ConstructorConverter buildUncached() {
+        Fixtures.evict(type);
+        return Fixtures.converterFor(type, style);
+    }
+
+    @Benchmark
+    public ConstructorConverter buildCached() {
+        return Fixtures.converterFor(type, style);
+    }
+
+    @Benchmark
+    public XStream startUp() {
+        XStream xstream = Fixtures.newXStream();
+        for (Class<?> record : types) {
+            Fixtures.evict(record);
+            Fixtures.register(xstream, record, style);
+        }
+        return xstream;
+    }
+
+    @Benchmark
+    public XStream startUpWithRegistry() {
+        Fixtures.evict(Arity2.class);
+        Fixtures.evict(Arity10.class);
+        Fixtures.evict(Arity50.class);
+        XStream xstream = Fixtures.newXStream();
+        ConstructorConverterRegistry.forTypes(Arity2.class, Arity10.class, Arity50.class).build().registerTo(xstream);
+        return xstream;
+    }
+
+}
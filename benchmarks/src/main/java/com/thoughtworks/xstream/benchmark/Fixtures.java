@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.benchmark;
+
+import java.lang.reflect.Constructor;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+import com.thoughtworks.xstream.converters.reflection.ConstructorConverter;
+import com.thoughtworks.xstream.converters.reflection.ConstructorMapping;
+import com.thoughtworks.xstream.converters.reflection.ConstructorMetadataCache;
+import com.thoughtworks.xstream.converters.reflection.Sun14ReflectionProvider;
+import com.thoughtworks.xstream.core.util.ParanamerParser;
+
+/**
+ * Documents and XStream configurations shared by the benchmarks.
+ */
+final class Fixtures {
+
+    static final String EXPLICIT = "explicit";
+    static final String ANNOTATION = "annotation";
+    static final String GENERATED = "generated";
+    static final String PARANAMER = "paranamer";
+    static final String REFLECTION = "reflection";
+
+    private Fixtures() {
+    }
+
+    /**
+     * Creates an instance whose ReflectionConverter does not depend on the JVM vendor being known
+     * to XStream, since the records have no default constructor.
+     */
+    static XStream newXStream() {
+        return new XStream(new Sun14ReflectionProvider());
+    }
+
+    /**
+     * The records of the paranamer style are compiled without the annotation processor, so their
+     * parameter names are read from the bytecode rather than from the generated index.
+     */
+    static Class<?> recordOfArity(int arity, String style) {
+        boolean unindexed = PARANAMER.equals(style);
+        switch (arity) {
+        case 2:
+            return unindexed ? com.thoughtworks.xstream.benchmark.unindexed.Arity2.class : Arity2.class;
+        case 10:
+            return unindexed ? com.thoughtworks.xstream.benchmark.unindexed.Arity10.class : Arity10.class;
+        case 50:
+            return unindexed ? com.thoughtworks.xstream.benchmark.unindexed.Arity50.class : Arity50.class;
+        default:
+            throw new IllegalArgumentException("No record of arity " + arity);
+        }
+    }
+
+    /**
+     * Discards the metadata and the parameter names cached for the type.
+     */
+    static void evict(Class<?> type) {
+        ConstructorMetadataCache.evict(type);
+        ParanamerParser.evict(type);
+    }
+
+    static Constructor<?> annotatedConstructorOf(Class<?> type) {
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if (constructor.isAnnotationPresent(XStreamUnmarshalling.class)) {
+                return constructor;
+            }
+        }
+        throw new IllegalArgumentException(type.getName() + " has no annotated constructor");
+    }
+
+    /**
+     * Registers the converter of the type configured in the given style. The reflection style
+     * keeps XStream's default ReflectionConverter.
+     */
+    static void register(XStream xstream, Class<?> type, String style) {
+        if (REFLECTION.equals(style)) {
+            return;
+        }
+        xstream.registerConverter(converterFor(type, style));
+    }
+
+    static ConstructorConverter converterFor(Class<?> type, String style) {
+        Constructor<?> constructor = annotatedConstructorOf(type);
+        if (EXPLICIT.equals(style)) {
+            return ConstructorConverter.forType(type)
+                .withConstructor(constructor.getParameterTypes())
+                .withAliases(constructor.getAnnotation(XStreamUnmarshalling.class).value())
+                .build();
+        } else if (ANNOTATION.equals(style)) {
+            // declaring the constructor keeps the converter on the reflective path, reading the names from the annotation
+            return ConstructorConverter.forType(type)
+                .withConstructor(constructor.getParameterTypes())
+                .build();
+        } else if (GENERATED.equals(style)) {
+            requireGeneratedConverter(type);
+            return ConstructorConverter.forType(type).build();
+        } else if (PARANAMER.equals(style)) {
+            return ConstructorConverter.forType(type).withParanamer().build();
+        }
+        throw new IllegalArgumentException("Unknown style " + style);
+    }
+
+    private static void requireGeneratedConverter(Class<?> type) {
+        String typeName = type.getName();
+        int packageEnd = typeName.lastIndexOf('.') + 1;
+        String generatedName = typeName.substring(0, packageEnd) + typeName.substring(packageEnd).replace('$', '_')
+            + ConstructorMapping.GENERATED_SUFFIX;
+        try {
+            Class.forName(generatedName, false, type.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("No converter was generated for " + typeName, e);
+        }
+    }
+
+    static String recordXml(String alias, int arity) {
+        StringBuilder xml = new StringBuilder("<").append(alias).append('>');
+        for (int i = 0; i < arity; i++) {
+            xml.append("<f").append(i).append('>');
+            xml.append(i % 2 == 0 ? "value " + i : String.valueOf(i));
+            xml.append("</f").append(i).append('>');
+        }
+        return xml.append("</").append(alias).append('>').toString();
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+
+/**
+ * Unmarshal throughput of object graphs by nesting depth and collection size,
+ * against XStream's ReflectionConverter. Run with <code>-prof gc</code> for the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"--add-opens", "java.base/java.util=ALL-UNNAMED", "--add-opens", "java.base/java.lang=ALL-UNNAMED",
+    "--add-opens", "java.base/java.text=ALL-UNNAMED", "--add-opens", "java.desktop/java.awt.font=ALL-UNNAMED"})
+public class GraphBenchmark {
+
+    public static class Node {
+        private final String name;
+        private final Node child;
+
+        @XStreamUnmarshalling({"name", "child"})
+        public Node(String name, Node child) {
+            this.name = name;
+            this.child = child;
+        }
+    }
+
+    public static class Item {
+        private final String sku;
+        private final int quantity;
+
+        @XStreamUnmarshalling({"sku", "quantity"})
+        public Item(String sku, int quantity) {
+            this.sku = sku;
+            this.quantity = quantity;
+        }
+    }
+
+    public static class Order {
+        private final String id;
+        private final List<Item> items;
+
+        @XStreamUnmarshalling({"id", "items"})
+        public Order(String id, List<Item> items) {
+            this.id = id;
+            this.items = items;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Nesting {
+
+        @Param({"1", "4", "16"})
+        private int depth;
+
+        @Param({Fixtures.ANNOTATION, Fixtures.GENERATED, Fixtures.REFLECTION})
+        private String style;
+
+        private XStream xstream;
+        private String xml;
+
+        @Setup
+        public void setUp() {
+            xstream = Fixtures.newXStream();
+            xstream.alias("node", Node.class);
+            Fixtures.register(xstream, Node.class, style);
+
+            StringBuilder node = new StringBuilder();
+            for (int i = 0; i < depth; i++) {
+                node.append(i == 0 ? "<node>" : "<child>").append("<name>node ").append(i).append("</name>");
+            }
+            for (int i = depth - 1; i >= 0; i--) {
+                node.append(i == 0 ? "</node>" : "</child>");
+            }
+            xml = node.toString();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Collection {
+
+        @Param({"10", "1000", "10000"})
+        private int items;
+
+        @Param({Fixtures.ANNOTATION, Fixtures.GENERATED, Fixtures.REFLECTION})
+        private String style;
+
+        private XStream xstream;
+        private String xml;
+
+        @Setup
+        public void setUp() {
+            xstream = Fixtures.newXStream();
+            xstream.alias("item", Item.class);
+            xstream.alias("order", Order.class);
+            Fixtures.register(xstream, Item.class, style);
+            Fixtures.register(xstream, Order.class, style);
+
+            StringBuilder order = new StringBuilder("<order><id>order</id><items>");
+            for (int i = 0; i < items; i++) {
+                order.append("<item><sku>sku ").append(i).append("</sku><quantity>").append(i).append("</quantity></item>");
+            }
+            xml = order.append("</items></order>").toString();
+        }
+    }
+
+    @Benchmark
+    public Object nested(Nesting nesting) {
+        return nesting.xstream.fromXML(nesting.xml);
+    }
+
+    @Benchmark
+    public Object collection(Collection collection) {
+        return collection.xstream.fromXML(collection.xml);
+    }
+
+}
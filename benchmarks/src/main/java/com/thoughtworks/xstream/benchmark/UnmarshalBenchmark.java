@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Unmarshal throughput of flat records by constructor arity and configuration style,
+ * against XStream's ReflectionConverter. Run with <code>-prof gc</code> for the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"--add-opens", "java.base/java.util=ALL-UNNAMED", "--add-opens", "java.base/java.lang=ALL-UNNAMED",
+    "--add-opens", "java.base/java.text=ALL-UNNAMED", "--add-opens", "java.desktop/java.awt.font=ALL-UNNAMED"})
+public class UnmarshalBenchmark {
+
+    @Param({"2", "10", "50"})
+    private int arity;
+
+    @Param({Fixtures.EXPLICIT, Fixtures.ANNOTATION, Fixtures.GENERATED, Fixtures.PARANAMER, Fixtures.REFLECTION})
+    private String style;
+
+    private XStream xstream;
+    private String xml;
+
+    @Setup
+    public void setUp() {
+        Class<?> type = Fixtures.recordOfArity(arity, style);
+        xstream = Fixtures.newXStream();
+        xstream.alias("record", type);
+        Fixtures.register(xstream, type, style);
+        xml = Fixtures.recordXml("record", arity);
+    }
+
+    @Benchmark
+    public Object unmarshal() {
+        return xstream.fromXML(xml);
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.benchmark.unindexed;
+
+import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+
+/**
+ * Immutable record with 10 constructor parameters, alternating strings and ints, compiled without the
+ * annotation processor so that its parameter names are only found in the bytecode.
+ */
+public class Arity10 {
+
+    private final String f0;
+    private final int f1;
+    private final String f2;
+    private final int f3;
+    private final String f4;
+    private final int f5;
+    private final String f6;
+    private final int f7;
+    private final String f8;
+    private final int f9;
+
+    @XStreamUnmarshalling({"f0", "f1", "f2", "f3", "f4", "f5", "f6", "f7", "f8", "f9"})
+    public Arity10(String f0, int f1, String f2, int f3, String f4, int f5, String f6, int f7, String f8,
+            int f9) {
+        this.f0 = f0;
+        this.f1 = f1;
+        this.f2 = f2;
+        this.f3 = f3;
+        this.f4 = f4;
+        this.f5 = f5;
+        this.f6 = f6;
+        this.f7 = f7;
+        this.f8 = f8;
+        this.f9 = f9;
+    }
+
+}
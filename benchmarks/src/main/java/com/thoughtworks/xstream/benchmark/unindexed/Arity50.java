@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.benchmark.unindexed;
+
+import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+
+/**
+ * Immutable record with 50 constructor parameters, alternating strings and ints, compiled without the
+ * annotation processor so that its parameter names are only found in the bytecode.
+ */
+public class Arity50 {
+
+    private final String f0;
+    private final int f1;
+    private final String f2;
+    private final int f3;
+    private final String f4;
+    private final int f5;
+    private final String f6;
+    private final int f7;
+    private final String f8;
+    private final int f9;
+    private final String f10;
+    private final int f11;
+    private final String f12;
+    private final int f13;
+    private final String f14;
+    private final int f15;
+    private final String f16;
+    private final int f17;
+    private final String f18;
+    private final int f19;
+    private final String f20;
+    private final int f21;
+    private final String f22;
+    private final int f23;
+    private final String f24;
+    private final int f25;
+    private final String f26;
+    private final int f27;
+    private final String f28;
+    private final int f29;
+    private final String f30;
+    private final int f31;
+    private final String f32;
+    private final int f33;
+    private final String f34;
+    private final int f35;
+    private final String f36;
+    private final int f37;
+    private final String f38;
+    private final int f39;
+    private final String f40;
+    private final int f41;
+    private final String f42;
+    private final int f43;
+    private final String f44;
+    private final int f45;
+    private final String f46;
+    private final int f47;
+    private final String f48;
+    private final int f49;
+
+    @XStreamUnmarshalling({"f0", "f1", "f2", "f3", "f4", "f5", "f6", "f7", "f8", "f9", "f10", "f11", "f12", "f13",
+        "f14", "f15", "f16", "f17", "f18", "f19", "f20", "f21", "f22", "f23", "f24", "f25", "f26",
+        "f27", "f28", "f29", "f30", "f31", "f32", "f33", "f34", "f35", "f36", "f37", "f38", "f39",
+        "f40", "f41", "f42", "f43", "f44", "f45", "f46", "f47", "f48", "f49"})
+    public Arity50(String f0, int f1, String f2, int f3, String f4, int f5, String f6, int f7, String f8,
+            int f9, String f10, int f11, String f12, int f13, String f14, int f15, String f16,
+            int f17, String f18, int f19, String f20, int f21, String f22, int f23, String f24,
+            int f25, String f26, int f27, String f28, int f29, String f30, int f31, String f32,
+            int f33, String f34, int f35, String f36, int f37, String f38, int f39, String f40,
+            int f41, String f42, int f43, String f44, int f45, String f46, int f47, String f48,
+            int f49) {
+        this.f0 = f0;
+        this.f1 = f1;
+        this.f2 = f2;
+        this.f3 = f3;
+        this.f4 = f4;
+        this.f5 = f5;
+        this.f6 = f6;
+        this.f7 = f7;
+        this.f8 = f8;
+        this.f9 = f9;
+        this.f10 = f10;
+        this.f11 = f11;
+        this.f12 = f12;
+        this.f13 = f13;
+        this.f14 = f14;
+        this.f15 = f15;
+        this.f16 = f16;
+        this.f17 = f17;
+        this.f18 = f18;
+        this.f19 = f19;
+        this.f20 = f20;
+        this.f21 = f21;
+        this.f22 = f22;
+        this.f23 = f23;
+        this.f24 = f24;
+        this.f25 = f25;
+        this.f26 = f26;
+        this.f27 = f27;
+        this.f28 = f28;
+        this.f29 = f29;
+        this.f30 = f30;
+        this.f31 = f31;
+        this.f32 = f32;
+        this.f33 = f33;
+        this.f34 = f34;
+        this.f35 = f35;
+        this.f36 = f36;
+        this.f37 = f37;
+        this.f38 = f38;
+        this.f39 = f39;
+        this.f40 = f40;
+        this.f41 = f41;
+        this.f42 = f42;
+        this.f43 = f43;
+        this.f44 = f44;
+        this.f45 = f45;
+        this.f46 = f46;
+        this.f47 = f47;
+        this.f48 = f48;
+        this.f49 = f49;
+    }
+
+}
@@ -21,4 +21,9 @@ public @interface XStreamUnmarshalling {
 
     String[] value() default {};
 
+    /**
+     * The xml nodes whose values are only built when first used. Their parameters must be interfaces.
+     */
+    String[] lazy() default {};
+
 }
@@ -0,0 +1,352 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.annotation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.StandardLocation;
+
+import com.thoughtworks.xstream.converters.reflection.ConstructorMapping;
+import com.thoughtworks.xstream.core.util.ParanamerParser;
+
+/**
+ * <p>Annotation processor which generates, for each constructor annotated with {@link XStreamUnmarshalling},
+ * a converter that dispatches the xml nodes with a <code>switch</code> and invokes the constructor directly.</p>
+ * <p>The generated class is named after the flattened binary name of the type followed by
+ * {@link ConstructorMapping#GENERATED_SUFFIX} and lives in the same package, so it can be registered
+ * on its own or picked up by {@link com.thoughtworks.xstream.converters.reflection.ConstructorConverter#forType(Class)}.
+ * When the annotation declares no names, the source names of the parameters are used.</p>
+ * <p>Types or constructors that cannot be reached from their own package (private types, private
+ * constructors, inner classes, parameters of types not accessible from the package) are skipped and
+ * left to the reflective path. A primitive parameter without value fails with the
+ * {@link com.thoughtworks.xstream.XStreamException} of that path instead of unboxing null.</p>
+ * <p>The source parameter names of every annotated constructor are also written to the index read by
+ * {@link ParanamerParser}, so discovering them at runtime does not read any bytecode.</p>
+ *
+ * @author Leonardo Wolter
+ */
+@SupportedAnnotationTypes("com.thoughtworks.xstream.annotation.XStreamUnmarshalling")
+public class XStreamUnmarshallingProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> types = new LinkedHashSet<TypeElement>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(XStreamUnmarshalling.class)) {
+            types.add((TypeElement) element.getEnclosingElement());
+        }
+        for (TypeElement type : types) {
+            List<ExecutableElement> constructors = annotatedConstructorsOf(type);
+            writeIndex(type, constructors);
+            if (constructors.size() != 1) {
+                note(type, "more than one constructor is annotated with @XStreamUnmarshalling, the overload is chosen at runtime");
+            } else if (isReachable(type, constructors.get(0)) && hasReachableParameters(type, constructors.get(0))) {
+                generate(type, constructors.get(0));
+            }
+        }
+        return false;
+    }
+
+    private List<ExecutableElement> annotatedConstructorsOf(TypeElement type) {
+        List<ExecutableElement> constructors = new ArrayList<ExecutableElement>();
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.CONSTRUCTOR && member.getAnnotation(XStreamUnmarshalling.class) != null) {
+                constructors.add((ExecutableElement) member);
+            }
+        }
+        return constructors;
+    }
+
+    private boolean isReachable(TypeElement type, ExecutableElement constructor) {
+        if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+            note(type, "the annotated constructor is private");
+            return false;
+        }
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            note(type, "the type is abstract");
+            return false;
+        }
+        Element element = type;
+        while (element.getKind() != ElementKind.PACKAGE) {
+            Element enclosing = element.getEnclosingElement();
+            if (!element.getKind().isClass() || element.getModifiers().contains(Modifier.PRIVATE)
+                || (enclosing.getKind() != ElementKind.PACKAGE && !element.getModifiers().contains(Modifier.STATIC))) {
+                note(type, "the type is not accessible from its package");
+                return false;
+            }
+            element = enclosing;
+        }
+        return true;
+    }
+
+    private boolean hasReachableParameters(TypeElement type, ExecutableElement constructor) {
+        Element typePackage = packageOf(type);
+        for (VariableElement parameter : constructor.getParameters()) {
+            TypeMirror parameterType = processingEnv.getTypeUtils().erasure(parameter.asType());
+            while (parameterType.getKind() == TypeKind.ARRAY) {
+                parameterType = ((ArrayType) parameterType).getComponentType();
+            }
+            if (parameterType.getKind() != TypeKind.DECLARED) {
+                continue;
+            }
+            Element element = ((DeclaredType) parameterType).asElement();
+            while (element.getKind() != ElementKind.PACKAGE) {
+                if (element.getModifiers().contains(Modifier.PRIVATE)
+                    || (!element.getModifiers().contains(Modifier.PUBLIC) && !packageOf(element).equals(typePackage))) {
+                    note(type, "the parameter type " + parameterType + " is not accessible from its package");
+                    return false;
+                }
+                element = element.getEnclosingElement();
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type, ExecutableElement constructor) {
+        String packageName = ((PackageElement) packageOf(type)).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String simpleName = (packageName.length() == 0 ? binaryName : binaryName.substring(packageName.length() + 1))
+            .replace('$', '_') + ConstructorMapping.GENERATED_SUFFIX;
+        String typeName = type.getQualifiedName().toString();
+
+        List<? extends VariableElement> parameters = constructor.getParameters();
+        String[] names = constructor.getAnnotation(XStreamUnmarshalling.class).value();
+        if (names.length == 0) {
+            names = new String[parameters.size()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = parameters.get(i).getSimpleName().toString();
+            }
+        } else if (names.length != parameters.size()) {
+            processingEnv.getMessager().printMessage(Kind.ERROR,
+                "The count of constructor parameters should be equal to xml field names count", constructor);
+            return;
+        }
+        String[] types = new String[names.length];
+        String[] boxedTypes = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            TypeMirror parameterType = parameters.get(i).asType();
+            if (parameterType.getKind().isPrimitive()) {
+                types[i] = parameterType.toString();
+                boxedTypes[i] = processingEnv.getTypeUtils().boxedClass(
+                    processingEnv.getTypeUtils().getPrimitiveType(parameterType.getKind())).getQualifiedName().toString();
+            } else {
+                types[i] = processingEnv.getTypeUtils().erasure(parameterType).toString();
+                boxedTypes[i] = types[i];
+            }
+        }
+
+        StringBuilder source = new StringBuilder();
+        if (packageName.length() > 0) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n * Converter for {@link ").append(typeName).append("} generated by ")
+            .append(getClass().getName()).append(".\n */\n");
+        source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        source.append("public final class ").append(simpleName)
+            .append(" implements com.thoughtworks.xstream.converters.Converter, ")
+            .append(ConstructorMapping.class.getName()).append(" {\n\n");
+
+        source.append("    private static final String[] NAMES = {");
+        for (int i = 0; i < names.length; i++) {
+            source.append(i == 0 ? "" : ", ").append(literal(names[i]));
+        }
+        source.append("};\n");
+        source.append("    private static final Class[] PARAMETER_TYPES = {");
+        for (int i = 0; i < types.length; i++) {
+            source.append(i == 0 ? "" : ", ").append(types[i]).append(".class");
+        }
+        source.append("};\n");
+        String[] lazyNames = constructor.getAnnotation(XStreamUnmarshalling.class).lazy();
+        source.append("    private static final String[] LAZY_NAMES = {");
+        for (int i = 0; i < lazyNames.length; i++) {
+            source.append(i == 0 ? "" : ", ").append(literal(lazyNames[i]));
+        }
+        source.append("};\n\n");
+
+        source.append("    public boolean canConvert(Class type) {\n");
+        source.append("        return ").append(typeName).append(".class.equals(type);\n");
+        source.append("    }\n\n");
+
+        source.append("    public void marshal(Object source, com.thoughtworks.xstream.io.HierarchicalStreamWriter writer,\n");
+        source.append("        com.thoughtworks.xstream.converters.MarshallingContext context) {\n");
+        source.append("        throw new UnsupportedOperationException(\"\");\n");
+        source.append("    }\n\n");
+
+        source.append("    public Object unmarshal(com.thoughtworks.xstream.io.HierarchicalStreamReader reader,\n");
+        source.append("        com.thoughtworks.xstream.converters.UnmarshallingContext context) {\n");
+        for (int i = 0; i < names.length; i++) {
+            source.append("        ").append(boxedTypes[i]).append(" p").append(i).append(" = null;\n");
+        }
+        source.append("        while (reader.hasMoreChildren()) {\n");
+        source.append("            reader.moveDown();\n");
+        source.append("            switch (slotOf(reader.getNodeName())) {\n");
+        for (int i = 0; i < names.length; i++) {
+            source.append("            case ").append(i).append(":\n");
+            source.append("                p").append(i).append(" = (").append(boxedTypes[i])
+                .append(") context.convertAnother(null, ").append(types[i]).append(".class);\n");
+            source.append("                break;\n");
+        }
+        source.append("            }\n");
+        source.append("            reader.moveUp();\n");
+        source.append("        }\n");
+        source.append("        return new ").append(typeName).append("(");
+        for (int i = 0; i < names.length; i++) {
+            source.append(i == 0 ? "" : ", ").append(argument(types[i], boxedTypes[i], "p" + i, i));
+        }
+        source.append(");\n");
+        source.append("    }\n\n");
+
+        source.append("    public String[] getNames() {\n");
+        source.append("        return NAMES.clone();\n");
+        source.append("    }\n\n");
+
+        source.append("    public Class<?>[] getParameterTypes() {\n");
+        source.append("        return PARAMETER_TYPES.clone();\n");
+        source.append("    }\n\n");
+
+        source.append("    public String[] getLazyNames() {\n");
+        source.append("        return LAZY_NAMES.clone();\n");
+        source.append("    }\n\n");
+
+        source.append("    public int slotOf(String nodeName) {\n");
+        source.append("        switch (nodeName) {\n");
+        Set<String> seen = new LinkedHashSet<String>();
+        for (int i = 0; i < names.length; i++) {
+            if (seen.add(names[i])) {
+                source.append("        case ").append(literal(names[i])).append(":\n");
+                source.append("            return ").append(i).append(";\n");
+            }
+        }
+        source.append("        default:\n");
+        source.append("            return -1;\n");
+        source.append("        }\n");
+        source.append("    }\n\n");
+
+        source.append("    public Object newInstance(Object[] arguments) {\n");
+        source.append("        return new ").append(typeName).append("(");
+        for (int i = 0; i < names.length; i++) {
+            source.append(i == 0 ? "" : ", ").append(argument(types[i], boxedTypes[i], "arguments[" + i + "]", i));
+        }
+        source.append(");\n");
+        source.append("    }\n\n");
+
+        source.append("    private static Object required(Object value, int slot) {\n");
+        source.append("        if (value == null) {\n");
+        source.append("            throw new com.thoughtworks.xstream.XStreamException(\"No value for the primitive parameter \"\n");
+        source.append("                + NAMES[slot] + \" of \" + ").append(literal(typeName)).append(");\n");
+        source.append("        }\n");
+        source.append("        return value;\n");
+        source.append("    }\n\n");
+        source.append("}\n");
+
+        String generatedName = packageName.length() == 0 ? simpleName : packageName + "." + simpleName;
+        try {
+            Writer writer = processingEnv.getFiler().createSourceFile(generatedName, type).openWriter();
+            try {
+                writer.write(source.toString());
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Kind.ERROR, "Could not generate " + generatedName + ": " + e.getMessage(), type);
+        }
+    }
+
+    private String argument(String type, String boxedType, String value, int slot) {
+        if (type.equals(boxedType)) {
+            return "(" + boxedType + ") " + value;
+        }
+        return "(" + boxedType + ") required(" + value + ", " + slot + ")";
+    }
+
+    private void writeIndex(TypeElement type, List<ExecutableElement> constructors) {
+        Properties index = new Properties();
+        for (ExecutableElement constructor : constructors) {
+            StringBuilder key = new StringBuilder();
+            StringBuilder names = new StringBuilder();
+            for (VariableElement parameter : constructor.getParameters()) {
+                if (names.length() > 0) {
+                    key.append(',');
+                    names.append(',');
+                }
+                key.append(processingEnv.getTypeUtils().erasure(parameter.asType()).toString());
+                names.append(parameter.getSimpleName());
+            }
+            index.setProperty(key.toString(), names.toString());
+        }
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String resource = ParanamerParser.INDEX_LOCATION + binaryName + ".properties";
+        try {
+            OutputStream output = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", resource, type).openOutputStream();
+            try {
+                index.store(output, null);
+            } finally {
+                output.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Kind.ERROR, "Could not write " + resource + ": " + e.getMessage(), type);
+        }
+    }
+
+    private Element packageOf(Element element) {
+        while (element.getKind() != ElementKind.PACKAGE) {
+            element = element.getEnclosingElement();
+        }
+        return element;
+    }
+
+    private String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < ' ' || c > '~') {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void note(TypeElement type, String reason) {
+        processingEnv.getMessager().printMessage(Kind.NOTE,
+            "No converter generated for " + type.getQualifiedName() + ": " + reason, type);
+    }
+
+}
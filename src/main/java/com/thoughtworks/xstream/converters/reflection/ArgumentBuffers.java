@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>The constructor argument arrays of one converter, reused by each thread. The arrays are kept as a
+ * stack, so a converter reached again while reading one of its own arguments, as in recursive types,
+ * takes a new array instead of overwriting the one in use.</p>
+ * <p>Also counts how many xml nodes were found at the slot following the previous one. Each thread
+ * counts on its own and adds its counts to the shared ones when its outermost unmarshal ends. The state
+ * of a thread does not reference this object, so it is dropped from pooled threads once the converter
+ * is discarded.</p>
+ *
+ * @author Leonardo Wolter
+ */
+final class ArgumentBuffers {
+
+    private final int size;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final ThreadLocal<State> state = new ThreadLocal<State>() {
+        @Override
+        protected State initialValue() {
+            return new State(size);
+        }
+    };
+
+    ArgumentBuffers(int size) {
+        this.size = size;
+    }
+
+    State state() {
+        return state.get();
+    }
+
+    void release(State state, Object[] buffer) {
+        if (state.release(buffer)) {
+            hits.addAndGet(state.hits);
+            misses.addAndGet(state.misses);
+            state.hits = 0;
+            state.misses = 0;
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    static final class State {
+
+        private final int size;
+        private Object[][] buffers = new Object[2][];
+        private int depth;
+        long hits;
+        long misses;
+
+        private State(int size) {
+            this.size = size;
+        }
+
+        Object[] acquire() {
+            if (depth == buffers.length) {
+                buffers = Arrays.copyOf(buffers, depth * 2);
+            }
+            Object[] buffer = buffers[depth];
+            if (buffer == null) {
+                buffer = new Object[size];
+                buffers[depth] = buffer;
+            }
+            depth++;
+            return buffer;
+        }
+
+        private boolean release(Object[] buffer) {
+            Arrays.fill(buffer, null);
+            depth--;
+            return depth == 0 && (hits != 0 || misses != 0);
+        }
+    }
+
+}
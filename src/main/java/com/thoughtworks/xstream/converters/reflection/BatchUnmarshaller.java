@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.XStreamException;
+
+/**
+ * <p>Unmarshals many independent xml documents on an executor, e.g. a <code>ForkJoinPool</code>
+ * or an executor of virtual threads, delivering the results in input or in completion order.</p>
+ * <p>It relies on the thread safety of a configured XStream instance and of ConstructorConverter:
+ * the instance must not be configured anymore once the batches start.</p>
+ *
+ * @author Leonardo Wolter
+ */
+public class BatchUnmarshaller<T> {
+
+    private final XStream xstream;
+    private final Class<T> type;
+    private final Executor executor;
+
+    /**
+     * @param xstream the configured instance
+     * @param type the type of the documents
+     * @param executor the executor the documents are decoded on
+     */
+    public BatchUnmarshaller(XStream xstream, Class<T> type, Executor executor) {
+        this.xstream = xstream;
+        this.type = type;
+        this.executor = executor;
+    }
+
+    /**
+     * Decodes the documents and waits for all of them
+     *
+     * @param documents the xml documents
+     * @return the objects, in the order of the documents
+     */
+    public List<T> unmarshalAll(Collection<String> documents) {
+        final List<T> results = new ArrayList<T>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            results.add(null);
+        }
+        unmarshalAll(documents, new ResultHandler<T>() {
+            public void handle(int index, T result) {
+                results.set(index, result);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Decodes the documents, handing each result over as soon as it is available. The handler
+     * is called on the calling thread, in completion order. The first failure is rethrown once
+     * the remaining tasks are cancelled.
+     *
+     * @param documents the xml documents
+     * @param handler the handler of the results
+     */
+    public void unmarshalAll(Collection<String> documents, ResultHandler<T> handler) {
+        CompletionService<Result<T>> completionService = new ExecutorCompletionService<Result<T>>(executor);
+        List<Future<Result<T>>> futures = new ArrayList<Future<Result<T>>>(documents.size());
+        int index = 0;
+        for (String document : documents) {
+            futures.add(completionService.submit(new UnmarshalTask(index++, document)));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Result<T> result = completionService.take().get();
+                handler.handle(result.index, result.value);
+            }
+        } catch (InterruptedException e) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new XStreamException("Interrupted while unmarshalling batch", e);
+        } catch (ExecutionException e) {
+            cancel(futures);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new XStreamException(e.getCause());
+        } catch (RuntimeException e) {
+            cancel(futures);
+            throw e;
+        }
+    }
+
+    private void cancel(List<Future<Result<T>>> futures) {
+        for (Future<Result<T>> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private class UnmarshalTask implements Callable<Result<T>> {
+
+        private final int index;
+        private final String document;
+
+        private UnmarshalTask(int index, String document) {
+            this.index = index;
+            this.document = document;
+        }
+
+        public Result<T> call() {
+            return new Result<T>(index, type.cast(xstream.fromXML(document)));
+        }
+    }
+
+    private static class Result<T> {
+
+        private final int index;
+        private final T value;
+
+        private Result(int index, T value) {
+            this.index = index;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Receives the objects decoded by {@link BatchUnmarshaller#unmarshalAll(Collection, ResultHandler)}
+     */
+    public interface ResultHandler<T> {
+
+        /**
+         * @param index the position of the document in the batch
+         * @param result the object decoded
+         */
+        void handle(int index, T result);
+
+    }
+
+}
@@ -13,16 +13,26 @@ package com.thoughtworks.xstream.converters.reflection;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.thoughtworks.xstream.XStreamException;
 import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+import com.thoughtworks.xstream.converters.ConversionException;
 import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.ConverterLookup;
 import com.thoughtworks.xstream.converters.MarshallingContext;
 import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.core.util.Primitives;
 import com.thoughtworks.xstream.io.HierarchicalStreamReader;
 import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.Mapper;
 
 /**
  * <p>ConstructorConverter which can use 3 different strategies to unmarshall fields
@@ -32,7 +42,16 @@ import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
  * <li> Annotating the constructor and using Paranamer to imply the xml' nodes aliases</li>
  * </ul>
  * </p>
- * <p>ConstructorConverter does not support the marshall opperation</p>
+ * <p>ConstructorConverter does not support the marshall opperation, unless a marshaller is provided
+ * or the built-in marshalling is enabled, in which case the xml nodes of the constructor are written
+ * from the fields or getters matching their names</p>
+ * <p>A built ConstructorConverter is thread safe, so one instance, or one {@link ConstructorConverterRegistry},
+ * may be shared by every thread using the same XStream instance. Its mapping is immutable. The state it keeps
+ * between calls is either safely shared, as the parameter converters resolved on first use and the counters,
+ * or kept by each thread, as the reused argument arrays of the sequential reading.</p>
+ * <p>The built object is registered as a target of references once its constructor returns, so shared
+ * objects stay shared in every reference mode of XStream. The xml nodes read for its constructor cannot
+ * refer to the object itself.</p>
  * @author Leonardo Wolter
  * @author Francisco Sokol
  * @author Guilherme Silveira
@@ -40,56 +59,262 @@ import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
 public class ConstructorConverter implements Converter {
 
     private final Class<?> type;
-    private final Constructor<?> declaredConstructor;
-    private final List<String> names;
+    private final UnmarshalPlan plan;
     private final Converter marshaller;
+    private final Mapper mapper;
+    private final ConstructorConverterListener listener;
+    private final ConverterLookup converterLookup;
+    private final AtomicReferenceArray<Converter> slotConverters;
+    private final Converter[] collectionConverters;
+    private final ArgumentBuffers buffers;
+    private final InterningCache interningCache;
+    private final boolean staxSkipping;
 
-    private ConstructorConverter(Class<?> type, Constructor<?> declaredConstructor, String[] fieldNames, Converter marshaller) {
+    private ConstructorConverter(Class<?> type, UnmarshalPlan plan, Converter marshaller, Mapper mapper,
+            ConstructorConverterListener listener, ConverterLookup converterLookup, Converter[] collectionConverters,
+            boolean sequentialReading, InterningCache interningCache, boolean staxSkipping) {
         this.type = type;
         this.marshaller = marshaller;
-        declaredConstructor.setAccessible(true);
-        this.declaredConstructor = declaredConstructor;
-        this.names = Arrays.asList(fieldNames);
+        this.plan = plan;
+        this.mapper = mapper;
+        this.listener = listener;
+        this.converterLookup = converterLookup;
+        this.slotConverters = converterLookup == null ? null : new AtomicReferenceArray<Converter>(plan.size());
+        this.collectionConverters = collectionConverters;
+        this.buffers = sequentialReading ? new ArgumentBuffers(plan.size()) : null;
+        this.interningCache = interningCache;
+        this.staxSkipping = staxSkipping;
     }
 
     public static ConstructorConverterBuilder forType(Class<?> type){
     	return new ConstructorConverterBuilder(type);
     }
     
+    /**
+     * @return the type this converter converts
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    UnmarshalPlan plan() {
+        return plan;
+    }
+
     @SuppressWarnings("rawtypes") 
     public boolean canConvert(Class type) {
         return this.type.equals(type);
     }
 
     public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
-        if (marshaller == null)
-            throw new UnsupportedOperationException("");
-        else
+        if (marshaller != null)
             marshaller.marshal(source, writer, context);
+        else if (plan.isMarshallable())
+            marshalSlots(source, writer, context);
+        else
+            throw new UnsupportedOperationException("");
+    }
+
+    private void marshalSlots(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+        String classAttribute = mapper == null ? null : mapper.aliasForSystemAttribute("class");
+        for (int i = 0; i < plan.size(); i++) {
+            Object value = LazyParameter.valueOf(plan.valueAt(i, source));
+            if (value != null) {
+                writer.startNode(plan.nameAt(i));
+                if (classAttribute != null) {
+                    Class<?> parameterType = plan.parameterTypeAt(i);
+                    Class<?> defaultType = parameterType.isPrimitive() ? Primitives.box(parameterType) : mapper.defaultImplementationOf(parameterType);
+                    if (value.getClass() != defaultType) {
+                        writer.addAttribute(classAttribute, mapper.serializedClass(value.getClass()));
+                    }
+                }
+                context.convertAnother(value);
+                writer.endNode();
+            }
+        }
     }
 
     public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
-        Object[] constructorParameters = new Object[names.size()];
+        if (listener != null) {
+            return measuredUnmarshal(reader, context);
+        }
+        if (buffers != null) {
+            return sequentialUnmarshal(reader, context);
+        }
+        Object[] constructorParameters = new Object[plan.size()];
+        readChildren(reader, context, constructorParameters, null, null);
+        return newInstance(constructorParameters);
+    }
+
+    private Object sequentialUnmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+        ArgumentBuffers.State state = buffers.state();
+        Object[] constructorParameters = state.acquire();
+        try {
+            readChildren(reader, context, constructorParameters, state, null);
+            return newInstance(constructorParameters);
+        } finally {
+            buffers.release(state, constructorParameters);
+        }
+    }
+
+    private Object measuredUnmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+        long start = System.nanoTime();
+        Measurement measurement = new Measurement();
+        ArgumentBuffers.State state = buffers == null ? null : buffers.state();
+        Object[] constructorParameters = state == null ? new Object[plan.size()] : state.acquire();
+        try {
+            readChildren(reader, context, constructorParameters, state, measurement);
+            Object instance;
+            try {
+                instance = newInstance(constructorParameters);
+            } catch (RuntimeException e) {
+                listener.failed(type, e);
+                throw e;
+            }
+            listener.unmarshalled(type, System.nanoTime() - start, measurement.nestedNanos, measurement.nodesRead,
+                measurement.nodesIgnored);
+            return instance;
+        } finally {
+            if (state != null) {
+                buffers.release(state, constructorParameters);
+            }
+        }
+    }
+
+    /**
+     * Reads the child nodes into their slots, guessing each slot from the previous one when a state is given
+     * and counting the nodes when a measurement is given. Unmapped nodes are skipped on StAX when enabled.
+     */
+    private void readChildren(HierarchicalStreamReader reader, UnmarshallingContext context, Object[] constructorParameters,
+            ArgumentBuffers.State state, Measurement measurement) {
+        int expected = 0;
         while (reader.hasMoreChildren()) {
             reader.moveDown();
-            String nodeName = reader.getNodeName();
-            if (names.contains(nodeName)) {
-                int position = names.indexOf(nodeName);
-                constructorParameters[position] = context.convertAnother(null, declaredConstructor.getParameterTypes()[position]);
+            int position = state == null ? plan.slotOf(reader.getNodeName()) : slotOf(reader.getNodeName(), expected, state);
+            if (position != UnmarshalPlan.UNMAPPED) {
+                if (measurement == null) {
+                    constructorParameters[position] = valueOf(reader, context, position);
+                } else {
+                    long nestedStart = System.nanoTime();
+                    constructorParameters[position] = valueOf(reader, context, position);
+                    measurement.nestedNanos += System.nanoTime() - nestedStart;
+                    measurement.nodesRead++;
+                }
+                expected = position + 1;
+            } else {
+                if (measurement != null) {
+                    measurement.nodesIgnored++;
+                }
+                if (staxSkipping) {
+                    StaxSubtreeSkipper.skip(reader);
+                }
             }
             reader.moveUp();
         }
+    }
+
+    private int slotOf(String nodeName, int expected, ArgumentBuffers.State state) {
+        if (plan.isSlotOf(nodeName, expected)) {
+            state.hits++;
+            return expected;
+        }
+        state.misses++;
+        return plan.slotOf(nodeName);
+    }
+
+    /**
+     * @return how many xml nodes were found at the slot following the previous one, when the sequential
+     *         reading is enabled
+     * @see ConstructorConverterBuilder#withSequentialReading()
+     */
+    public long getSequentialHits() {
+        return buffers == null ? 0 : buffers.getHits();
+    }
+
+    /**
+     * @return how many xml nodes needed the full lookup of their slot, when the sequential reading is enabled
+     * @see ConstructorConverterBuilder#withSequentialReading()
+     */
+    public long getSequentialMisses() {
+        return buffers == null ? 0 : buffers.getMisses();
+    }
+
+    Object newInstance(Object[] constructorParameters) {
+        if (interningCache != null) {
+            return interningCache.intern(type, constructorParameters, plan.instantiator());
+        }
+        return plan.newInstance(constructorParameters);
+    }
+
+    private Object valueOf(HierarchicalStreamReader reader, UnmarshallingContext context, int position) {
         try {
-            return declaredConstructor.newInstance(constructorParameters);
-        } catch (InstantiationException e) {
-            throw new XStreamException(e);
-        } catch (IllegalAccessException e) {
-            throw new XStreamException(e);
-        } catch (IllegalArgumentException e) {
-            throw new XStreamException(e);
-        } catch (InvocationTargetException e) {
-            throw new XStreamException(e);
+            return convertedValueOf(reader, context, position);
+        } catch (ConversionException e) {
+            if (e.get("reference") != null && e.get("constructed-type") == null) {
+                e.add("constructed-type", type.getName());
+                e.add("hint", "the reference may point to an object built by a constructor that is still reading "
+                    + "its arguments, cyclic references to such objects cannot be resolved");
+            }
+            throw e;
+        }
+    }
+
+    private Object convertedValueOf(HierarchicalStreamReader reader, UnmarshallingContext context, int position) {
+        if (plan.isLazy(position)) {
+            return LazyParameter.capture(plan.parameterTypeAt(position), reader, mapper, converterLookup);
+        }
+        if (mapper != null) {
+            String classAttribute = mapper.aliasForSystemAttribute("class");
+            String serializedClass = classAttribute == null ? null : reader.getAttribute(classAttribute);
+            if (serializedClass != null) {
+                return context.convertAnother(null, mapper.realClass(serializedClass));
+            }
+        }
+        SimpleValueParser parser = plan.parserAt(position);
+        if (parser != null) {
+            return parser.read(reader);
+        }
+        if (collectionConverters != null && collectionConverters[position] != null) {
+            return context.convertAnother(null, plan.parameterTypeAt(position), collectionConverters[position]);
+        }
+        if (converterLookup != null) {
+            return context.convertAnother(null, plan.parameterTypeAt(position), converterAt(position));
+        }
+        return context.convertAnother(null, plan.parameterTypeAt(position));
+    }
+
+    /**
+     * Resolves the converter of each parameter now, when the converter lookup is given, instead of on the
+     * first unmarshal
+     */
+    void link() {
+        if (converterLookup == null) {
+            return;
+        }
+        for (int i = 0; i < plan.size(); i++) {
+            if (!plan.isLazy(i)) {
+                converterAt(i);
+            }
+        }
+    }
+
+    boolean canMarshal() {
+        return marshaller != null || plan.isMarshallable();
+    }
+
+    private Converter converterAt(int position) {
+        Converter converter = slotConverters.get(position);
+        if (converter == null) {
+            converter = converterLookup.lookupConverterForType(mapper.defaultImplementationOf(plan.parameterTypeAt(position)));
+            slotConverters.set(position, converter);
         }
+        return converter;
+    }
+
+    private static final class Measurement {
+        private long nestedNanos;
+        private int nodesRead;
+        private int nodesIgnored;
     }
 
     /**
@@ -101,24 +326,35 @@ public class ConstructorConverter implements Converter {
      */
     public static class ConstructorConverterBuilder {
 
+        private static Object paranamerParser;
+        private static Method paranamerParamsFor;
+
         private final Class<?> type;
         private String[] names;
         private Converter marshaller;
         private Constructor<?> declaredConstructor;
+        private InstantiationStrategy instantiationStrategy = new ReflectionInstantiationStrategy();
+        private boolean instantiationStrategyGiven;
+        private boolean paranamer;
+        private boolean marshalling;
+        private boolean simpleValueParsing;
+        private Mapper mapper;
+        private ConstructorConverterListener listener;
+        private ConverterLookup converterLookup;
+        private boolean typedCollections;
+        private int collectionCapacity;
+        private boolean unmodifiableCollections;
+        private boolean sequentialReading;
+        private boolean staxSkipping;
+        private InterningCache interningCache;
+        private String[] lazyNames;
+        private List<Constructor<?>> annotatedConstructors;
 
         /**
          * Constructor 
          * @param type The class the converter will convert  
          */
         private ConstructorConverterBuilder(Class<?> type) {
-            List<Constructor<?>> constructors = Arrays.asList(type.getDeclaredConstructors());
-            for (Constructor<?> constructor : constructors) {
-                if (constructor.isAnnotationPresent(XStreamUnmarshalling.class)) {
-                    XStreamUnmarshalling annotation = constructor.getAnnotation(XStreamUnmarshalling.class);
-                    names = annotation.value();
-                    declaredConstructor = constructor;
-                }
-            }
             this.type = type;
         }
 
@@ -156,33 +392,8 @@ public class ConstructorConverter implements Converter {
          * @return the builder
          */
         public ConstructorConverterBuilder withParanamer() {
-            List<Constructor<?>> constructors = Arrays.asList(type.getDeclaredConstructors());
-            for (Constructor<?> constructor : constructors) {
-                if (constructor.isAnnotationPresent(XStreamUnmarshalling.class)) {
-                    try {
-                        Class<?> paranamerClass = Class.forName("com.thoughtworks.xstream.core.util.ParanamerParser");
-                        Method paramsFor = paranamerClass.getMethod("paramsFor", Constructor.class);
-    					names = (String[]) paramsFor.invoke(paranamerClass.newInstance(), constructor);
-    					declaredConstructor = constructor;
-                        return this;
-                    } catch (IllegalArgumentException e) {
-                    	throw new RuntimeException("could not use paranamer", e);
-                    } catch (InvocationTargetException e) {
-                    	throw new RuntimeException("could not use paranamer",e);
-                    } catch (InstantiationException e) {
-                    	throw new RuntimeException("could not use paranamer", e);
-                    } catch (IllegalAccessException e) {
-                        throw new RuntimeException("could not use paranamer",e);
-                    } catch (ClassNotFoundException e) {
-                        throw new RuntimeException("could not use paranamer",e);
-                    } catch (NoSuchMethodException e) {
-                    	throw new RuntimeException("could not use paranamer",e);
-    				} catch (SecurityException e) {
-    					throw new RuntimeException("could not use paranamer",e);
-    				}
-                }
-            }
-            throw new UnsupportedOperationException("could not find annotated constructor");
+            this.paranamer = true;
+            return this;
         }
         
         /**
@@ -195,19 +406,417 @@ public class ConstructorConverter implements Converter {
             return this;
         }
         
+        /**
+         * Enables the built-in marshalling, which writes one xml node for each constructor
+         * parameter from the field or getter matching the node name. Null values are not written.
+         *
+         * @return the builder
+         */
+        public ConstructorConverterBuilder withMarshalling() {
+            this.marshalling = true;
+            return this;
+        }
+
+        /**
+         * Reads the primitive, wrapper, String and enum parameters straight from the text of their xml
+         * nodes, parsed as the XStream default converters do, instead of looking up their converters.
+         * Converters registered in XStream for those types are therefore not used, except for nodes
+         * carrying a <code>class</code> attribute.
+         *
+         * @return the builder
+         */
+        public ConstructorConverterBuilder withSimpleValueParsing() {
+            this.simpleValueParsing = true;
+            return this;
+        }
+
+        /**
+         * Defines the mapper of the XStream instance, used to write and read the <code>class</code>
+         * attribute of values whose type differs from the default implementation of their parameter
+         *
+         * @param mapper the mapper, e.g. <code>xstream.getMapper()</code>
+         * @return the builder
+         */
+        public ConstructorConverterBuilder withMapper(Mapper mapper) {
+            this.mapper = mapper;
+            return this;
+        }
+
+        /**
+         * Resolves the converter of each constructor parameter from the lookup the first time the parameter
+         * is read and calls it directly afterwards, instead of looking it up again for each xml node. Nodes
+         * with a <code>class</code> attribute are still converted by the converter of their own type. Requires
+         * the mapper, and converters registered for the parameter types after the first unmarshal are not seen.
+         *
+         * @param converterLookup the lookup of the XStream instance, e.g. <code>xstream.getConverterLookup()</code>
+         * @return the builder
+         * @see #withMapper(Mapper)
+         */
+        public ConstructorConverterBuilder withConverterLookup(ConverterLookup converterLookup) {
+            this.converterLookup = converterLookup;
+            return this;
+        }
+
+        /**
+         * Reads the collection parameters declared with a type argument, such as <code>List&lt;Product&gt;</code>,
+         * converting the elements named after the alias of that type straight to it instead of resolving
+         * the type of each element from its name. Requires the mapper.
+         *
+         * @return the builder
+         * @see #withMapper(Mapper)
+         */
+        public ConstructorConverterBuilder withTypedCollections() {
+            this.typedCollections = true;
+            return this;
+        }
+
+        /**
+         * Creates the typed collections with the given initial capacity, when their type has such a constructor
+         *
+         * @param capacity the expected number of elements
+         * @return the builder
+         * @see #withTypedCollections()
+         */
+        public ConstructorConverterBuilder withCollectionCapacity(int capacity) {
+            this.typedCollections = true;
+            this.collectionCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * Passes the typed collections declared as an interface to the constructor wrapped as unmodifiable
+         *
+         * @return the builder
+         * @see #withTypedCollections()
+         */
+        public ConstructorConverterBuilder withUnmodifiableCollections() {
+            this.typedCollections = true;
+            this.unmodifiableCollections = true;
+            return this;
+        }
+
+        /**
+         * Optimizes the unmarshal for xml whose nodes usually follow the order of the constructor parameters.
+         * The node following a parameter is first compared to the next parameter, before looking its
+         * slot up, and the arrays of constructor arguments are reused by each thread, being cleared after
+         * every instantiation. The instantiation strategy must therefore not keep the array it receives.
+         *
+         * @return the builder
+         * @see ConstructorConverter#getSequentialHits()
+         */
+        public ConstructorConverterBuilder withSequentialReading() {
+            this.sequentialReading = true;
+            return this;
+        }
+
+        /**
+         * Skips the xml nodes that map to no parameter directly on the <code>XMLStreamReader</code> of a
+         * StaxDriver, without building their text or the names of their nested nodes. The reader is reached
+         * through private fields of XStream, so other readers, or readers whose fields cannot be reached,
+         * leave the nodes to <code>moveDown</code>/<code>moveUp</code> as usual.
+         *
+         * @return the builder
+         */
+        public ConstructorConverterBuilder withStaxSkipping() {
+            this.staxSkipping = true;
+            return this;
+        }
+
+        /**
+         * Returns the instance kept in the cache for equal constructor arguments instead of creating a new
+         * one, which suits immutable value types repeated many times in the xml. The arguments must
+         * implement <code>equals</code> and <code>hashCode</code>.
+         *
+         * @param interningCache the cache, which may be shared by several converters
+         * @return the builder
+         */
+        public ConstructorConverterBuilder withInterning(InterningCache interningCache) {
+            this.interningCache = interningCache;
+            return this;
+        }
+
+        /**
+         * Captures the xml nodes of the given parameters and passes a proxy to the constructor, which only
+         * converts the node when one of its methods is first called. The parameters must be interfaces and
+         * the mapper and converter lookup are required. Replaces the lazy nodes declared in
+         * {@link XStreamUnmarshalling#lazy()}.
+         *
+         * @param lazyNames the names of the lazy xml nodes
+         * @return the builder
+         * @see #withConverterLookup(ConverterLookup)
+         */
+        public ConstructorConverterBuilder withLazy(String... lazyNames) {
+            this.lazyNames = lazyNames;
+            return this;
+        }
+
+        /**
+         * Defines how the converter invokes the constructor. Defaults to the converter generated by
+         * XStreamUnmarshallingProcessor when present, then to {@link ReflectionInstantiationStrategy}.
+         * A strategy given here is always used, even when a generated converter is present.
+         *
+         * @param instantiationStrategy the strategy, e.g. {@link MethodHandleInstantiationStrategy}
+         * @return the builder
+         */
+        public ConstructorConverterBuilder withInstantiationStrategy(InstantiationStrategy instantiationStrategy) {
+            this.instantiationStrategy = instantiationStrategy;
+            this.instantiationStrategyGiven = true;
+            return this;
+        }
+
+        /**
+         * Measures each unmarshal and reports it to the listener. Without a listener nothing is measured.
+         *
+         * @param listener the listener, e.g. a {@link ConstructorConverterMetrics}
+         * @return the builder
+         */
+        public ConstructorConverterBuilder withListener(ConstructorConverterListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
         /**
          * Instatiates the converter based on the builder state 
          *
          * @return the converter built 
          */
         public ConstructorConverter build() {
-            if (declaredConstructor == null) {
+            if (converterLookup != null && mapper == null) {
+                throw new IllegalArgumentException("The converter lookup requires the mapper of the XStream instance");
+            }
+            if (typedCollections && mapper == null) {
+                throw new IllegalArgumentException("The typed collections require the mapper of the XStream instance");
+            }
+            String key = metadataKey();
+            UnmarshalPlan plan = ConstructorMetadataCache.get(type, key, instantiationStrategy);
+            if (plan == null) {
+                plan = ConstructorMetadataCache.putIfAbsent(type, key, instantiationStrategy, resolvePlan());
+            }
+            if (plan.hasLazySlots() && (mapper == null || converterLookup == null)) {
+                throw new IllegalArgumentException("The lazy parameters require the mapper and the converter lookup of the XStream instance");
+            }
+            return new ConstructorConverter(type, plan, marshaller, mapper, listener, converterLookup, collectionConvertersOf(plan),
+                sequentialReading, interningCache, staxSkipping);
+        }
+
+        private Converter[] collectionConvertersOf(UnmarshalPlan plan) {
+            if (!typedCollections) {
+                return null;
+            }
+            Converter[] converters = new Converter[plan.size()];
+            for (int i = 0; i < converters.length; i++) {
+                Class<?> elementType = plan.elementTypeAt(i);
+                if (elementType != null) {
+                    converters[i] = TypedCollectionConverter.forParameter(plan.parameterTypeAt(i), elementType,
+                        collectionCapacity, unmodifiableCollections, mapper, converterLookup);
+                }
+            }
+            return converters;
+        }
+
+        private String metadataKey() {
+            StringBuilder key = new StringBuilder();
+            key.append(declaredConstructor == null ? "@" : Arrays.asList(declaredConstructor.getParameterTypes()).toString());
+            key.append('|').append(names == null ? "@" : Arrays.asList(names).toString());
+            key.append('|').append(paranamer).append('|').append(marshalling).append('|').append(simpleValueParsing);
+            key.append('|').append(typedCollections).append('|').append(instantiationStrategyGiven);
+            key.append('|').append(lazyNames == null ? "@" : Arrays.asList(lazyNames).toString());
+            return key.toString();
+        }
+
+        private UnmarshalPlan resolvePlan() {
+            UnmarshalPlan plan = resolveUnmarshalPlan();
+            if (simpleValueParsing) {
+                plan = plan.withSimpleValueParsers();
+            }
+            if (typedCollections) {
+                plan = plan.withElementTypesOf(genericParameterTypesOf(plan));
+            }
+            Set<String> lazy = lazyNamesOf(plan);
+            if (!lazy.isEmpty()) {
+                plan = plan.withLazySlots(lazy);
+            }
+            return marshalling ? plan.withAccessorsOf(type) : plan;
+        }
+
+        private Set<String> lazyNamesOf(UnmarshalPlan plan) {
+            Set<String> lazy = new LinkedHashSet<String>();
+            if (lazyNames != null) {
+                lazy.addAll(Arrays.asList(lazyNames));
+            } else if (plan.instantiator() instanceof ConstructorMapping) {
+                lazy.addAll(Arrays.asList(((ConstructorMapping) plan.instantiator()).getLazyNames()));
+            } else if (names == null) {
+                for (Constructor<?> constructor : annotatedConstructors()) {
+                    if (declaredConstructor == null || declaredConstructor.equals(constructor)) {
+                        lazy.addAll(Arrays.asList(constructor.getAnnotation(XStreamUnmarshalling.class).lazy()));
+                    }
+                }
+            }
+            return lazy;
+        }
+
+        private Type[] genericParameterTypesOf(UnmarshalPlan plan) {
+            if (plan.instantiator() instanceof OverloadedInstantiator) {
+                return ((OverloadedInstantiator) plan.instantiator()).genericParameterTypes();
+            }
+            Class<?>[] parameterTypes = new Class<?>[plan.size()];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                parameterTypes[i] = plan.parameterTypeAt(i);
+            }
+            try {
+                Type[] genericParameterTypes = type.getDeclaredConstructor(parameterTypes).getGenericParameterTypes();
+                return genericParameterTypes.length == parameterTypes.length ? genericParameterTypes : new Type[0];
+            } catch (NoSuchMethodException e) {
+                return new Type[0];
+            }
+        }
+
+        private UnmarshalPlan resolveUnmarshalPlan() {
+            Constructor<?> constructor = declaredConstructor;
+            String[] fieldNames = names;
+            if (constructor == null && fieldNames == null && !paranamer && !instantiationStrategyGiven) {
+                ConstructorMapping mapping = generatedMappingFor(type);
+                if (mapping != null) {
+                    return new UnmarshalPlan(mapping.getNames(), mapping.getParameterTypes(), mapping);
+                }
+            }
+            if (constructor == null && fieldNames == null && annotatedConstructors().size() > 1) {
+                return overloadedPlan();
+            }
+            if (paranamer) {
+                if (annotatedConstructor() == null) {
+                    throw new UnsupportedOperationException("could not find annotated constructor");
+                }
+                if (constructor == null) {
+                    constructor = annotatedConstructor();
+                }
+                if (fieldNames == null) {
+                    fieldNames = paranamerNamesOf(constructor);
+                }
+            }
+            if (constructor == null || fieldNames == null) {
+                Constructor<?> annotated = annotatedConstructor();
+                if (annotated != null) {
+                    if (constructor == null) {
+                        constructor = annotated;
+                    }
+                    if (fieldNames == null) {
+                        fieldNames = annotatedNamesOf(annotated);
+                    }
+                }
+            }
+            if (constructor == null) {
                 throw new IllegalArgumentException("Could not find specified constructor");
             }
-            if (names.length != declaredConstructor.getParameterTypes().length) {
+            if (fieldNames == null) {
+                throw new IllegalArgumentException("Could not find the xml field names of the constructor");
+            }
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            if (fieldNames.length != parameterTypes.length) {
                 throw new IllegalArgumentException("The count of constructor parameters should be equal to xml field names conut");
             }
-            return new ConstructorConverter(type, declaredConstructor, names, marshaller);
+            return new UnmarshalPlan(fieldNames, parameterTypes, instantiationStrategy.instantiatorFor(constructor));
+        }
+
+        private static String[] paranamerNamesOf(Constructor<?> constructor) {
+            try {
+                Method paramsFor = paranamerParamsFor();
+                return (String[]) paramsFor.invoke(paranamerParser, constructor);
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("could not use paranamer", e);
+            } catch (InvocationTargetException e) {
+                throw new RuntimeException("could not use paranamer",e);
+            } catch (InstantiationException e) {
+                throw new RuntimeException("could not use paranamer", e);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("could not use paranamer",e);
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException("could not use paranamer",e);
+            } catch (NoSuchMethodException e) {
+                throw new RuntimeException("could not use paranamer",e);
+            } catch (SecurityException e) {
+                throw new RuntimeException("could not use paranamer",e);
+            }
+        }
+
+        /**
+         * Informs the annotated constructor already found, so the declared constructors are not scanned again
+         */
+        ConstructorConverterBuilder withAnnotatedConstructor(Constructor<?> constructor) {
+            this.annotatedConstructors = Collections.<Constructor<?>>singletonList(constructor);
+            return this;
+        }
+
+        private List<Constructor<?>> annotatedConstructors() {
+            if (annotatedConstructors == null) {
+                List<Constructor<?>> found = new ArrayList<Constructor<?>>();
+                for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+                    if (constructor.isAnnotationPresent(XStreamUnmarshalling.class)) {
+                        found.add(constructor);
+                    }
+                }
+                annotatedConstructors = found;
+            }
+            return annotatedConstructors;
+        }
+
+        private Constructor<?> annotatedConstructor() {
+            List<Constructor<?>> constructors = annotatedConstructors();
+            return constructors.isEmpty() ? null : constructors.get(constructors.size() - 1);
+        }
+
+        private UnmarshalPlan overloadedPlan() {
+            List<String[]> constructorNames = new ArrayList<String[]>();
+            for (Constructor<?> constructor : annotatedConstructors()) {
+                constructorNames.add(annotatedNamesOf(constructor));
+            }
+            return OverloadedInstantiator.planOf(annotatedConstructors(), constructorNames, instantiationStrategy);
+        }
+
+        /**
+         * The names declared by the annotation, or the parameter names when it declares none, as the
+         * converters generated by XStreamUnmarshallingProcessor do
+         */
+        private static String[] annotatedNamesOf(Constructor<?> constructor) {
+            String[] values = constructor.getAnnotation(XStreamUnmarshalling.class).value();
+            if (values.length == 0 && constructor.getParameterTypes().length > 0) {
+                return paranamerNamesOf(constructor);
+            }
+            return values;
+        }
+
+        private static synchronized Method paranamerParamsFor() throws ClassNotFoundException, NoSuchMethodException,
+                InstantiationException, IllegalAccessException {
+            if (paranamerParamsFor == null) {
+                Class<?> paranamerClass = Class.forName("com.thoughtworks.xstream.core.util.ParanamerParser");
+                paranamerParser = paranamerClass.newInstance();
+                paranamerParamsFor = paranamerClass.getMethod("paramsFor", Constructor.class);
+            }
+            return paranamerParamsFor;
+        }
+
+        private static ConstructorMapping generatedMappingFor(Class<?> type) {
+            ClassLoader classLoader = type.getClassLoader();
+            if (classLoader == null) {
+                return null;
+            }
+            String typeName = type.getName();
+            int packageEnd = typeName.lastIndexOf('.') + 1;
+            String generatedName = typeName.substring(0, packageEnd)
+                + typeName.substring(packageEnd).replace('$', '_') + ConstructorMapping.GENERATED_SUFFIX;
+            try {
+                Class<?> generated = Class.forName(generatedName, true, classLoader);
+                if (!ConstructorMapping.class.isAssignableFrom(generated)) {
+                    return null;
+                }
+                return (ConstructorMapping) generated.newInstance();
+            } catch (ClassNotFoundException e) {
+                return null;
+            } catch (InstantiationException e) {
+                throw new XStreamException("Could not instantiate generated converter " + generatedName, e);
+            } catch (IllegalAccessException e) {
+                throw new XStreamException("Could not instantiate generated converter " + generatedName, e);
+            }
         }
 
     }
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+/**
+ * <p>Receives the measurements of each unmarshal made by a {@link ConstructorConverter}. The converter
+ * only takes the measurements when a listener is given, see
+ * {@link ConstructorConverter.ConstructorConverterBuilder#withListener(ConstructorConverterListener)}.</p>
+ * <p>A listener is called from every thread using the converter and must be thread safe.</p>
+ *
+ * @author Leonardo Wolter
+ * @see ConstructorConverterMetrics
+ */
+public interface ConstructorConverterListener {
+
+    /**
+     * Called after an instance was created
+     *
+     * @param type the converted type
+     * @param elapsedNanos the time spent in the whole unmarshal
+     * @param nestedNanos the part of that time spent converting the values of the xml nodes
+     * @param nodesRead the xml nodes mapped to a constructor parameter
+     * @param nodesIgnored the xml nodes skipped because they are not mapped
+     */
+    void unmarshalled(Class<?> type, long elapsedNanos, long nestedNanos, int nodesRead, int nodesIgnored);
+
+    /**
+     * Called when the constructor invocation failed. The exception is rethrown after the call.
+     *
+     * @param type the converted type
+     * @param cause the exception thrown by the instantiator
+     */
+    void failed(Class<?> type, RuntimeException cause);
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.util.Map;
+
+/**
+ * <p>The JMX view of the metrics of one type unmarshalled by a {@link ConstructorConverter}.</p>
+ *
+ * @author Leonardo Wolter
+ * @see ConstructorConverterMetrics
+ */
+public interface ConstructorConverterMXBean {
+
+    /**
+     * @return the name of the converted type
+     */
+    String getType();
+
+    /**
+     * @return the instances created
+     */
+    long getUnmarshalCount();
+
+    /**
+     * @return the time spent in the unmarshals, in nanoseconds
+     */
+    long getTotalNanos();
+
+    /**
+     * @return the part of the total time spent converting the values of the xml nodes, in nanoseconds
+     */
+    long getNestedNanos();
+
+    /**
+     * @return the xml nodes mapped to a constructor parameter
+     */
+    long getNodesRead();
+
+    /**
+     * @return the xml nodes skipped because they are not mapped
+     */
+    long getNodesIgnored();
+
+    /**
+     * The latency of the unmarshals: the bucket 0 counts those below one microsecond and the bucket
+     * <code>i</code> those from <code>2^(i-1)</code> up to <code>2^i</code> microseconds. The last bucket
+     * also counts everything slower.
+     *
+     * @return the count of each bucket
+     */
+    long[] getLatencyHistogram();
+
+    /**
+     * @return the failed constructor invocations by exception class name
+     */
+    Map<String, Long> getFailures();
+
+    /**
+     * Zeroes every counter
+     */
+    void reset();
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.thoughtworks.xstream.XStreamException;
+
+/**
+ * <p>A {@link ConstructorConverterListener} which keeps counters for each converted type and,
+ * when given a {@link MBeanServer}, registers them as one {@link ConstructorConverterMXBean} per type,
+ * named <code>&lt;domain&gt;:type=ConstructorConverter,name=&lt;class name&gt;</code>.</p>
+ * <p>Failures are counted by the class of the root cause, that is the exception thrown by the
+ * constructor itself instead of the exception wrapping it.</p>
+ *
+ * @author Leonardo Wolter
+ */
+public class ConstructorConverterMetrics implements ConstructorConverterListener {
+
+    /**
+     * The domain of the registered beans, unless another one is given
+     */
+    public static final String DEFAULT_DOMAIN = "com.thoughtworks.xstream";
+
+    static final int LATENCY_BUCKETS = 22;
+
+    private final ConcurrentMap<Class<?>, TypeMetrics> metrics = new ConcurrentHashMap<Class<?>, TypeMetrics>();
+    private final MBeanServer server;
+    private final String domain;
+
+    /**
+     * Keeps the metrics without exposing them through JMX
+     */
+    public ConstructorConverterMetrics() {
+        this(null, null);
+    }
+
+    /**
+     * @param server the server where the bean of each type is registered when the type is first seen
+     * @param domain the domain of the bean names, e.g. {@link #DEFAULT_DOMAIN}
+     */
+    public ConstructorConverterMetrics(MBeanServer server, String domain) {
+        this.server = server;
+        this.domain = domain;
+    }
+
+    public void unmarshalled(Class<?> type, long elapsedNanos, long nestedNanos, int nodesRead, int nodesIgnored) {
+        typeMetricsOf(type).unmarshalled(elapsedNanos, nestedNanos, nodesRead, nodesIgnored);
+    }
+
+    public void failed(Class<?> type, RuntimeException cause) {
+        Throwable root = cause;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        typeMetricsOf(type).failed(root.getClass().getName());
+    }
+
+    /**
+     * @param type the converted type
+     * @return the metrics of the type, created empty if it was not converted yet
+     */
+    public ConstructorConverterMXBean metricsOf(Class<?> type) {
+        return typeMetricsOf(type);
+    }
+
+    private TypeMetrics typeMetricsOf(Class<?> type) {
+        TypeMetrics typeMetrics = metrics.get(type);
+        if (typeMetrics == null) {
+            TypeMetrics created = new TypeMetrics(type.getName());
+            typeMetrics = metrics.putIfAbsent(type, created);
+            if (typeMetrics == null) {
+                typeMetrics = created;
+                register(created);
+            }
+        }
+        return typeMetrics;
+    }
+
+    /**
+     * Removes the beans of every type from the server
+     */
+    public void unregister() {
+        if (server == null) {
+            return;
+        }
+        for (TypeMetrics typeMetrics : new ArrayList<TypeMetrics>(metrics.values())) {
+            try {
+                ObjectName name = objectNameOf(typeMetrics.getType());
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            } catch (JMException e) {
+                throw new XStreamException("Could not unregister the metrics of " + typeMetrics.getType(), e);
+            }
+        }
+    }
+
+    ObjectName objectNameOf(String type) throws JMException {
+        return new ObjectName(domain + ":type=ConstructorConverter,name=" + ObjectName.quote(type));
+    }
+
+    private void register(TypeMetrics typeMetrics) {
+        if (server == null) {
+            return;
+        }
+        try {
+            server.registerMBean(typeMetrics, objectNameOf(typeMetrics.getType()));
+        } catch (JMException e) {
+            throw new XStreamException("Could not register the metrics of " + typeMetrics.getType(), e);
+        }
+    }
+
+    static int bucketOf(long elapsedNanos) {
+        long micros = elapsedNanos / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return bucket < LATENCY_BUCKETS ? bucket : LATENCY_BUCKETS - 1;
+    }
+
+    private static class TypeMetrics implements ConstructorConverterMXBean {
+
+        private final String type;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong nestedNanos = new AtomicLong();
+        private final AtomicLong nodesRead = new AtomicLong();
+        private final AtomicLong nodesIgnored = new AtomicLong();
+        private final AtomicLongArray latency = new AtomicLongArray(LATENCY_BUCKETS);
+        private final ConcurrentMap<String, AtomicLong> failures = new ConcurrentHashMap<String, AtomicLong>();
+
+        private TypeMetrics(String type) {
+            this.type = type;
+        }
+
+        private void unmarshalled(long elapsed, long nested, int read, int ignored) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(elapsed);
+            nestedNanos.addAndGet(nested);
+            nodesRead.addAndGet(read);
+            nodesIgnored.addAndGet(ignored);
+            latency.incrementAndGet(bucketOf(elapsed));
+        }
+
+        private void failed(String exceptionType) {
+            AtomicLong counter = failures.get(exceptionType);
+            if (counter == null) {
+                AtomicLong created = new AtomicLong();
+                counter = failures.putIfAbsent(exceptionType, created);
+                if (counter == null) {
+                    counter = created;
+                }
+            }
+            counter.incrementAndGet();
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getUnmarshalCount() {
+            return count.get();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        public long getNestedNanos() {
+            return nestedNanos.get();
+        }
+
+        public long getNodesRead() {
+            return nodesRead.get();
+        }
+
+        public long getNodesIgnored() {
+            return nodesIgnored.get();
+        }
+
+        public long[] getLatencyHistogram() {
+            long[] histogram = new long[LATENCY_BUCKETS];
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = latency.get(i);
+            }
+            return histogram;
+        }
+
+        public Map<String, Long> getFailures() {
+            Map<String, Long> snapshot = new TreeMap<String, Long>();
+            for (Map.Entry<String, AtomicLong> failure : failures.entrySet()) {
+                snapshot.put(failure.getKey(), failure.getValue().get());
+            }
+            return snapshot;
+        }
+
+        public void reset() {
+            count.set(0);
+            totalNanos.set(0);
+            nestedNanos.set(0);
+            nodesRead.set(0);
+            nodesIgnored.set(0);
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                latency.set(i, 0);
+            }
+            failures.clear();
+        }
+    }
+
+}
@@ -0,0 +1,496 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.ConverterLookup;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.core.util.ClassPathScanner;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.Mapper;
+
+/**
+ * <p>Set of constructor converters registered together, one for each type with a constructor
+ * annotated with {@link XStreamUnmarshalling}.</p>
+ * <p>The converters are built in parallel, or lazily when the registry is lazy, in which case
+ * each converter is built the first time XStream asks for its type.</p>
+ *
+ * @author Leonardo Wolter
+ */
+public class ConstructorConverterRegistry {
+
+    private final Set<Class<?>> types;
+    private final ConcurrentMap<Class<?>, ConstructorConverter> converters;
+    private final ConverterFactory factory;
+    private final boolean lazy;
+
+    private ConstructorConverterRegistry(Set<Class<?>> types, ConcurrentMap<Class<?>, ConstructorConverter> converters,
+            ConverterFactory factory, boolean lazy) {
+        this.types = Collections.unmodifiableSet(types);
+        this.converters = converters;
+        this.factory = factory;
+        this.lazy = lazy;
+    }
+
+    /**
+     * @param types the types to be converted
+     * @return the builder
+     */
+    public static ConstructorConverterRegistryBuilder forTypes(Class<?>... types) {
+        return new ConstructorConverterRegistryBuilder(Arrays.asList(types), new String[0]);
+    }
+
+    /**
+     * @param packageNames the packages, including their sub packages, to be scanned for annotated constructors
+     * @return the builder
+     */
+    public static ConstructorConverterRegistryBuilder forPackages(String... packageNames) {
+        return new ConstructorConverterRegistryBuilder(Collections.<Class<?>>emptyList(), packageNames);
+    }
+
+    /**
+     * @return the types of the registry
+     */
+    public Set<Class<?>> getTypes() {
+        return types;
+    }
+
+    /**
+     * @param type one of the types of the registry
+     * @return the converter of the type, built if the registry is lazy
+     */
+    public ConstructorConverter converterFor(Class<?> type) {
+        ConstructorConverter converter = converters.get(type);
+        if (converter == null) {
+            if (!types.contains(type)) {
+                throw new IllegalArgumentException("No constructor converter registered for " + type.getName());
+            }
+            converter = factory.build(type);
+            ConstructorConverter previous = converters.putIfAbsent(type, converter);
+            if (previous != null) {
+                converter = previous;
+            }
+        }
+        return converter;
+    }
+
+    /**
+     * Registers the converters with the default priority
+     *
+     * @param xstream the xstream instance
+     */
+    public void registerTo(XStream xstream) {
+        registerTo(xstream, XStream.PRIORITY_NORMAL);
+    }
+
+    /**
+     * Registers the converters, or a single converter building them on demand if the registry is lazy
+     *
+     * @param xstream the xstream instance
+     * @param priority the priority of the converters
+     */
+    public void registerTo(XStream xstream, int priority) {
+        if (lazy) {
+            xstream.registerConverter(new LazyConverter(), priority);
+        } else {
+            for (Class<?> type : types) {
+                xstream.registerConverter(converterFor(type), priority);
+            }
+        }
+    }
+
+    private class LazyConverter implements Converter {
+
+        @SuppressWarnings("rawtypes")
+        public boolean canConvert(Class type) {
+            return types.contains(type);
+        }
+
+        public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+            converterFor(source.getClass()).marshal(source, writer, context);
+        }
+
+        public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+            return converterFor(context.getRequiredType()).unmarshal(reader, context);
+        }
+    }
+
+    private static class ConverterFactory {
+
+        private final ConcurrentMap<Class<?>, List<Constructor<?>>> annotatedConstructors = new ConcurrentHashMap<Class<?>, List<Constructor<?>>>();
+        private final boolean paranamer;
+        private final boolean marshalling;
+        private final boolean simpleValueParsing;
+        private final boolean sequentialReading;
+        private final boolean staxSkipping;
+        private final InstantiationStrategy instantiationStrategy;
+        private final ConstructorConverterListener listener;
+        private final InterningCache interningCache;
+        private final Mapper mapper;
+        private final ConverterLookup converterLookup;
+
+        private ConverterFactory(boolean paranamer, boolean marshalling, boolean simpleValueParsing, boolean sequentialReading,
+                boolean staxSkipping, InstantiationStrategy instantiationStrategy, ConstructorConverterListener listener, InterningCache interningCache,
+                Mapper mapper, ConverterLookup converterLookup) {
+            this.paranamer = paranamer;
+            this.marshalling = marshalling;
+            this.simpleValueParsing = simpleValueParsing;
+            this.sequentialReading = sequentialReading;
+            this.staxSkipping = staxSkipping;
+            this.instantiationStrategy = instantiationStrategy;
+            this.listener = listener;
+            this.interningCache = interningCache;
+            this.mapper = mapper;
+            this.converterLookup = converterLookup;
+        }
+
+        private ConstructorConverter build(Class<?> type) {
+            ConstructorConverter.ConstructorConverterBuilder builder = ConstructorConverter.forType(type);
+            if (instantiationStrategy != null) {
+                builder.withInstantiationStrategy(instantiationStrategy);
+            }
+            if (marshalling) {
+                builder.withMarshalling();
+            }
+            if (simpleValueParsing) {
+                builder.withSimpleValueParsing();
+            }
+            if (sequentialReading) {
+                builder.withSequentialReading();
+            }
+            if (staxSkipping) {
+                builder.withStaxSkipping();
+            }
+            builder.withListener(listener);
+            builder.withInterning(interningCache);
+            builder.withMapper(mapper);
+            builder.withConverterLookup(converterLookup);
+            List<Constructor<?>> constructors = annotatedConstructors.remove(type);
+            if (constructors == null && paranamer) {
+                constructors = annotatedConstructorsOf(type);
+            }
+            if (constructors != null && constructors.size() == 1) {
+                Constructor<?> constructor = constructors.get(0);
+                builder.withAnnotatedConstructor(constructor);
+                if (paranamer && constructor.getAnnotation(XStreamUnmarshalling.class).value().length == 0) {
+                    builder.withParanamer();
+                }
+            } else if (paranamer) {
+                builder.withParanamer();
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * A builder for ConstructorConverterRegistry
+     *
+     * @author Leonardo Wolter
+     */
+    public static class ConstructorConverterRegistryBuilder {
+
+        private final List<Class<?>> types;
+        private final String[] packageNames;
+        private ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        private ForkJoinPool pool;
+        private boolean paranamer;
+        private boolean lazy;
+        private boolean marshalling;
+        private boolean simpleValueParsing;
+        private boolean sequentialReading;
+        private boolean staxSkipping;
+        private InstantiationStrategy instantiationStrategy;
+        private ConstructorConverterListener listener;
+        private InterningCache interningCache;
+        private Mapper mapper;
+        private ConverterLookup converterLookup;
+
+        private ConstructorConverterRegistryBuilder(List<Class<?>> types, String[] packageNames) {
+            this.types = types;
+            this.packageNames = packageNames;
+        }
+
+        /**
+         * Defines the class loader of the scanned packages. Defaults to the context class loader.
+         *
+         * @param classLoader the class loader
+         * @return the builder
+         */
+        public ConstructorConverterRegistryBuilder withClassLoader(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+            return this;
+        }
+
+        /**
+         * Uses paranamer for the annotated constructors which do not declare the xml nodes names
+         *
+         * @return the builder
+         */
+        public ConstructorConverterRegistryBuilder withParanamer() {
+            this.paranamer = true;
+            return this;
+        }
+
+        /**
+         * Enables the built-in marshalling of the converters
+         *
+         * @return the builder
+         * @see ConstructorConverter.ConstructorConverterBuilder#withMarshalling()
+         */
+        public ConstructorConverterRegistryBuilder withMarshalling() {
+            this.marshalling = true;
+            return this;
+        }
+
+        /**
+         * Parses the simple values of the converters straight from the xml text
+         *
+         * @return the builder
+         * @see ConstructorConverter.ConstructorConverterBuilder#withSimpleValueParsing()
+         */
+        public ConstructorConverterRegistryBuilder withSimpleValueParsing() {
+            this.simpleValueParsing = true;
+            return this;
+        }
+
+        /**
+         * Enables the sequential reading of the converters
+         *
+         * @return the builder
+         * @see ConstructorConverter.ConstructorConverterBuilder#withSequentialReading()
+         */
+        public ConstructorConverterRegistryBuilder withSequentialReading() {
+            this.sequentialReading = true;
+            return this;
+        }
+
+        /**
+         * Enables the skipping of unmapped nodes on StAX readers by the converters
+         *
+         * @return the builder
+         * @see ConstructorConverter.ConstructorConverterBuilder#withStaxSkipping()
+         */
+        public ConstructorConverterRegistryBuilder withStaxSkipping() {
+            this.staxSkipping = true;
+            return this;
+        }
+
+        /**
+         * Defines how the converters invoke the constructors
+         *
+         * @param instantiationStrategy the strategy
+         * @return the builder
+         */
+        public ConstructorConverterRegistryBuilder withInstantiationStrategy(InstantiationStrategy instantiationStrategy) {
+            this.instantiationStrategy = instantiationStrategy;
+            return this;
+        }
+
+        /**
+         * Reports the unmarshals of every converter to the listener
+         *
+         * @param listener the listener
+         * @return the builder
+         * @see ConstructorConverter.ConstructorConverterBuilder#withListener(ConstructorConverterListener)
+         */
+        public ConstructorConverterRegistryBuilder withListener(ConstructorConverterListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Interns the instances of every converter in the given cache
+         *
+         * @param interningCache the cache
+         * @return the builder
+         * @see ConstructorConverter.ConstructorConverterBuilder#withInterning(InterningCache)
+         */
+        public ConstructorConverterRegistryBuilder withInterning(InterningCache interningCache) {
+            this.interningCache = interningCache;
+            return this;
+        }
+
+        /**
+         * Gives the mapper of the XStream instance to every converter
+         *
+         * @param mapper the mapper
+         * @return the builder
+         * @see ConstructorConverter.ConstructorConverterBuilder#withMapper(Mapper)
+         */
+        public ConstructorConverterRegistryBuilder withMapper(Mapper mapper) {
+            this.mapper = mapper;
+            return this;
+        }
+
+        /**
+         * Gives the converter lookup of the XStream instance to every converter, which is required by
+         * the types declaring lazy xml nodes
+         *
+         * @param converterLookup the lookup
+         * @return the builder
+         * @see ConstructorConverter.ConstructorConverterBuilder#withConverterLookup(ConverterLookup)
+         */
+        public ConstructorConverterRegistryBuilder withConverterLookup(ConverterLookup converterLookup) {
+            this.converterLookup = converterLookup;
+            return this;
+        }
+
+        /**
+         * Defines the pool used to scan the types and build the converters. Defaults to a pool
+         * with one thread per available processor, created for the build.
+         *
+         * @param pool the pool
+         * @return the builder
+         */
+        public ConstructorConverterRegistryBuilder withPool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Postpones building each converter until XStream asks for its type
+         *
+         * @return the builder
+         */
+        public ConstructorConverterRegistryBuilder lazy() {
+            this.lazy = true;
+            return this;
+        }
+
+        /**
+         * Finds the annotated types and, unless the registry is lazy, builds their converters
+         *
+         * @return the registry
+         */
+        public ConstructorConverterRegistry build() {
+            ConverterFactory factory = new ConverterFactory(paranamer, marshalling, simpleValueParsing, sequentialReading, staxSkipping, instantiationStrategy, listener, interningCache,
+                mapper, converterLookup);
+            ConcurrentMap<Class<?>, ConstructorConverter> converters = new ConcurrentHashMap<Class<?>, ConstructorConverter>();
+            ForkJoinPool buildPool = pool == null ? new ForkJoinPool() : pool;
+            try {
+                Set<Class<?>> annotatedTypes = new LinkedHashSet<Class<?>>(types);
+                if (packageNames.length > 0) {
+                    List<Class<?>> candidates = new ClassPathScanner(classLoader).classesOf(packageNames);
+                    buildPool.invoke(new ScanTask(candidates, 0, candidates.size(), factory.annotatedConstructors));
+                    for (Class<?> candidate : candidates) {
+                        if (factory.annotatedConstructors.containsKey(candidate)) {
+                            annotatedTypes.add(candidate);
+                        }
+                    }
+                }
+                if (!lazy) {
+                    List<Class<?>> toBuild = new ArrayList<Class<?>>(annotatedTypes);
+                    buildPool.invoke(new BuildTask(toBuild, 0, toBuild.size(), factory, converters));
+                }
+                return new ConstructorConverterRegistry(annotatedTypes, converters, factory, lazy);
+            } finally {
+                if (pool == null) {
+                    buildPool.shutdown();
+                }
+            }
+        }
+    }
+
+    private static List<Constructor<?>> annotatedConstructorsOf(Class<?> type) {
+        List<Constructor<?>> found = new ArrayList<Constructor<?>>();
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if (constructor.isAnnotationPresent(XStreamUnmarshalling.class)) {
+                found.add(constructor);
+            }
+        }
+        return found;
+    }
+
+    private static class ScanTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Class<?>> candidates;
+        private final int from;
+        private final int to;
+        private final ConcurrentMap<Class<?>, List<Constructor<?>>> annotatedConstructors;
+
+        private ScanTask(List<Class<?>> candidates, int from, int to, ConcurrentMap<Class<?>, List<Constructor<?>>> annotatedConstructors) {
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.annotatedConstructors = annotatedConstructors;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ScanTask(candidates, from, middle, annotatedConstructors),
+                    new ScanTask(candidates, middle, to, annotatedConstructors));
+            } else if (to > from) {
+                Class<?> candidate = candidates.get(from);
+                try {
+                    List<Constructor<?>> found = annotatedConstructorsOf(candidate);
+                    if (!found.isEmpty()) {
+                        annotatedConstructors.put(candidate, found);
+                    }
+                } catch (LinkageError e) {
+                    // classes whose dependencies are missing cannot be converted either
+                }
+            }
+        }
+    }
+
+    private static class BuildTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Class<?>> types;
+        private final int from;
+        private final int to;
+        private final ConverterFactory factory;
+        private final ConcurrentMap<Class<?>, ConstructorConverter> converters;
+
+        private BuildTask(List<Class<?>> types, int from, int to, ConverterFactory factory,
+                ConcurrentMap<Class<?>, ConstructorConverter> converters) {
+            this.types = types;
+            this.from = from;
+            this.to = to;
+            this.factory = factory;
+            this.converters = converters;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BuildTask(types, from, middle, factory, converters),
+                    new BuildTask(types, middle, to, factory, converters));
+            } else if (to > from) {
+                Class<?> type = types.get(from);
+                converters.put(type, factory.build(type));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.XStreamException;
+import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+import com.thoughtworks.xstream.core.util.Primitives;
+
+/**
+ * <p>Prepares the converters of a registry before they are used, so the first documents do not pay for
+ * building them, and reports the types whose mapping is inconsistent.</p>
+ * <p>Each type is warmed up in parallel: its converter is built, the converters of its parameters are
+ * resolved and, when round trips are requested, a sample instance is written and read back by XStream,
+ * which must give the same xml. The sample is built from a default value for each parameter, so types
+ * whose constructors reject those values cannot be round tripped. The round trips are seen by the
+ * listener and the interning cache of the converters as any other unmarshal.</p>
+ *
+ * @author Leonardo Wolter
+ */
+public class ConstructorConverterWarmUp {
+
+    private static final Map<Class<?>, Object> SAMPLES = new HashMap<Class<?>, Object>();
+
+    static {
+        SAMPLES.put(String.class, "warm-up");
+        SAMPLES.put(Boolean.class, Boolean.FALSE);
+        SAMPLES.put(Character.class, Character.valueOf('w'));
+        SAMPLES.put(Byte.class, Byte.valueOf((byte) 0));
+        SAMPLES.put(Short.class, Short.valueOf((short) 0));
+        SAMPLES.put(Integer.class, Integer.valueOf(0));
+        SAMPLES.put(Long.class, Long.valueOf(0));
+        SAMPLES.put(Float.class, Float.valueOf(0));
+        SAMPLES.put(Double.class, Double.valueOf(0));
+    }
+
+    private final ConstructorConverterRegistry registry;
+    private XStream xstream;
+    private int roundTrips;
+    private long budgetNanos = -1;
+    private ForkJoinPool pool;
+
+    private ConstructorConverterWarmUp(ConstructorConverterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * @param registry the registry whose converters are warmed up
+     * @return the warm up
+     */
+    public static ConstructorConverterWarmUp forRegistry(ConstructorConverterRegistry registry) {
+        return new ConstructorConverterWarmUp(registry);
+    }
+
+    /**
+     * Resolves the converters of the parameters which are not types of the registry through the given
+     * instance, which also runs the round trips. The registry must already be registered to it.
+     *
+     * @param xstream the configured instance
+     * @return the warm up
+     */
+    public ConstructorConverterWarmUp withXStream(XStream xstream) {
+        this.xstream = xstream;
+        return this;
+    }
+
+    /**
+     * Writes and reads back a sample of each type the given number of times
+     *
+     * @param roundTrips the round trips of each type
+     * @return the warm up
+     */
+    public ConstructorConverterWarmUp withRoundTrips(int roundTrips) {
+        if (roundTrips < 0) {
+            throw new IllegalArgumentException("The round trips must not be negative: " + roundTrips);
+        }
+        this.roundTrips = roundTrips;
+        return this;
+    }
+
+    /**
+     * Stops warming up once the given time is elapsed, reporting the remaining types as timed out
+     *
+     * @param budget the time budget
+     * @param unit the unit of the budget
+     * @return the warm up
+     */
+    public ConstructorConverterWarmUp withTimeBudget(long budget, TimeUnit unit) {
+        this.budgetNanos = unit.toNanos(budget);
+        return this;
+    }
+
+    /**
+     * Defines the pool running the warm up. Defaults to a pool with one thread per available processor,
+     * created for the warm up.
+     *
+     * @param pool the pool
+     * @return the warm up
+     */
+    public ConstructorConverterWarmUp withPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Warms up every type of the registry and waits for them, or for the end of the time budget
+     *
+     * @return the report
+     */
+    public WarmUpReport run() {
+        if (roundTrips > 0 && xstream == null) {
+            throw new IllegalArgumentException("The round trips require the XStream instance");
+        }
+        long start = System.nanoTime();
+        final long deadline = budgetNanos < 0 ? Long.MAX_VALUE : start + budgetNanos;
+        ForkJoinPool runPool = pool == null ? new ForkJoinPool() : pool;
+        try {
+            List<Class<?>> types = new ArrayList<Class<?>>(registry.getTypes());
+            List<Future<WarmUpReport.Result>> futures = new ArrayList<Future<WarmUpReport.Result>>(types.size());
+            for (final Class<?> type : types) {
+                futures.add(runPool.submit(new Callable<WarmUpReport.Result>() {
+                    public WarmUpReport.Result call() {
+                        return warmUp(type, deadline);
+                    }
+                }));
+            }
+            List<WarmUpReport.Result> results = new ArrayList<WarmUpReport.Result>(types.size());
+            for (int i = 0; i < types.size(); i++) {
+                results.add(resultOf(types.get(i), futures.get(i), deadline));
+            }
+            return new WarmUpReport(results, System.nanoTime() - start);
+        } finally {
+            if (pool == null) {
+                runPool.shutdownNow();
+            }
+        }
+    }
+
+    private WarmUpReport.Result resultOf(Class<?> type, Future<WarmUpReport.Result> future, long deadline) {
+        try {
+            if (deadline == Long.MAX_VALUE) {
+                return future.get();
+            }
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return new WarmUpReport.Result(type, WarmUpReport.Status.TIMED_OUT, "the time budget ran out", null, 0);
+        } catch (ExecutionException e) {
+            return new WarmUpReport.Result(type, WarmUpReport.Status.INCONSISTENT, e.getCause().getMessage(), e.getCause(), 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new XStreamException("Interrupted while warming up the converters", e);
+        }
+    }
+
+    private WarmUpReport.Result warmUp(Class<?> type, long deadline) {
+        ConstructorConverter converter;
+        try {
+            converter = registry.converterFor(type);
+        } catch (RuntimeException e) {
+            return inconsistent(type, "could not build the converter: " + e.getMessage(), e);
+        }
+        UnmarshalPlan plan = converter.plan();
+        for (int i = 0; i < plan.size(); i++) {
+            try {
+                link(plan.parameterTypeAt(i));
+                if (plan.elementTypeAt(i) != null) {
+                    link(plan.elementTypeAt(i));
+                }
+            } catch (RuntimeException e) {
+                return inconsistent(type, "could not link the xml node " + plan.nameAt(i) + ": " + e.getMessage(), e);
+            }
+        }
+        try {
+            converter.link();
+        } catch (RuntimeException e) {
+            return inconsistent(type, "could not link the converter: " + e.getMessage(), e);
+        }
+        if (roundTrips == 0) {
+            return new WarmUpReport.Result(type, WarmUpReport.Status.READY, null, null, 0);
+        }
+        if (!converter.canMarshal()) {
+            return new WarmUpReport.Result(type, WarmUpReport.Status.NOT_ROUND_TRIPPED,
+                "the converter was built without marshalling", null, 0);
+        }
+        return roundTrip(type, deadline);
+    }
+
+    private void link(Class<?> parameterType) {
+        if (parameterType.isPrimitive()) {
+            return;
+        }
+        if (registry.getTypes().contains(parameterType)) {
+            registry.converterFor(parameterType);
+            return;
+        }
+        for (Constructor<?> constructor : parameterType.getDeclaredConstructors()) {
+            if (constructor.isAnnotationPresent(XStreamUnmarshalling.class)) {
+                throw new IllegalArgumentException(parameterType.getName()
+                    + " has an annotated constructor but is not a type of the registry");
+            }
+        }
+        if (xstream != null) {
+            xstream.getConverterLookup().lookupConverterForType(xstream.getMapper().defaultImplementationOf(parameterType));
+        }
+    }
+
+    private WarmUpReport.Result roundTrip(Class<?> type, long deadline) {
+        Object sample;
+        try {
+            sample = sampleOf(type, null, new HashSet<Class<?>>());
+        } catch (RuntimeException e) {
+            return new WarmUpReport.Result(type, WarmUpReport.Status.NOT_ROUND_TRIPPED,
+                "could not build a sample: " + e.getMessage(), e, 0);
+        }
+        String xml;
+        try {
+            xml = xstream.toXML(sample);
+        } catch (RuntimeException e) {
+            return inconsistent(type, "could not write a sample: " + e.getMessage(), e);
+        }
+        int done = 0;
+        while (done < roundTrips && System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+            String copy;
+            try {
+                copy = xstream.toXML(xstream.fromXML(xml));
+            } catch (RuntimeException e) {
+                return inconsistent(type, "could not read a sample back: " + e.getMessage(), e);
+            }
+            if (!copy.equals(xml)) {
+                return inconsistent(type, "the sample was read back as\n" + copy + "\ninstead of\n" + xml, null);
+            }
+            done++;
+        }
+        if (done < roundTrips) {
+            return new WarmUpReport.Result(type, WarmUpReport.Status.TIMED_OUT,
+                "the time budget ran out after " + done + " round trips", null, done);
+        }
+        return new WarmUpReport.Result(type, WarmUpReport.Status.READY, null, null, done);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private Object sampleOf(Class<?> type, Class<?> elementType, Set<Class<?>> building) {
+        Object sample = SAMPLES.get(type.isPrimitive() ? Primitives.box(type) : type);
+        if (sample != null) {
+            return sample;
+        }
+        if (type.isEnum()) {
+            Object[] constants = type.getEnumConstants();
+            return constants.length == 0 ? null : constants[0];
+        }
+        if (registry.getTypes().contains(type) && building.add(type)) {
+            ConstructorConverter converter = registry.converterFor(type);
+            UnmarshalPlan plan = converter.plan();
+            Object[] arguments = new Object[plan.size()];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = sampleOf(plan.parameterTypeAt(i), plan.elementTypeAt(i), building);
+            }
+            building.remove(type);
+            return converter.newInstance(arguments);
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            Class<?> implementation = xstream.getMapper().defaultImplementationOf(type);
+            if (implementation.isInterface() || Modifier.isAbstract(implementation.getModifiers())) {
+                return null;
+            }
+            Collection collection;
+            try {
+                collection = (Collection) implementation.newInstance();
+            } catch (Exception e) {
+                return null;
+            }
+            Object element = elementType == null ? null : sampleOf(elementType, null, building);
+            if (element != null) {
+                collection.add(element);
+            }
+            return collection;
+        }
+        return null;
+    }
+
+    private static WarmUpReport.Result inconsistent(Class<?> type, String message, Throwable cause) {
+        return new WarmUpReport.Result(type, WarmUpReport.Status.INCONSISTENT, message, cause, 0);
+    }
+
+}
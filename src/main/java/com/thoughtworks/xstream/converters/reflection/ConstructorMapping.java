@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+/**
+ * <p>Mapping between xml nodes and the constructor of a type, known without reflection.</p>
+ * <p>Implemented by the converters generated at compile time for constructors annotated with
+ * {@link com.thoughtworks.xstream.annotation.XStreamUnmarshalling}, which ConstructorConverter
+ * uses in place of the constructor discovered at runtime. A mapping is only generated for types with a
+ * single annotated constructor, so its presence spares the converter from scanning the constructors.</p>
+ *
+ * @author Leonardo Wolter
+ * @see com.thoughtworks.xstream.annotation.XStreamUnmarshallingProcessor
+ */
+public interface ConstructorMapping extends Instantiator {
+
+    /**
+     * Suffix appended to the flattened binary name of a type to name its generated converter
+     */
+    String GENERATED_SUFFIX = "_XStreamConverter";
+
+    /**
+     * @return the names of the xml nodes, ordered by slot
+     */
+    String[] getNames();
+
+    /**
+     * @return the types of the constructor parameters, ordered by slot
+     */
+    Class<?>[] getParameterTypes();
+
+    /**
+     * @param nodeName the name of the xml node
+     * @return the constructor slot of the node or -1 if the node is not mapped
+     */
+    int slotOf(String nodeName);
+
+    /**
+     * @return the names of the xml nodes declared lazy, which ConstructorConverter reads on first use
+     */
+    String[] getLazyNames();
+
+}
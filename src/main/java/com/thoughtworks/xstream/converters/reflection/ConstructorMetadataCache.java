@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Process wide cache of the immutable metadata resolved by {@link ConstructorConverter.ConstructorConverterBuilder}:
+ * the chosen constructor, the xml nodes names, the parameter types and the instantiator.</p>
+ * <p>Converters built for the same type and configuration, e.g. by different XStream instances, share the
+ * same metadata. The entries belong to their class, so they do not prevent its class loader from being
+ * collected. Instantiation strategies are compared with <code>equals</code>, so instances of a strategy
+ * share metadata only when they are equal, see {@link InstantiationStrategy}. At most
+ * {@link #MAX_PLANS_PER_TYPE} configurations are kept per type, so strategies created for every converter
+ * without overriding <code>equals</code> do not grow the cache: once full, the metadata of further
+ * configurations is resolved for each converter.</p>
+ *
+ * @author Leonardo Wolter
+ */
+public final class ConstructorMetadataCache {
+
+    static final int MAX_PLANS_PER_TYPE = 32;
+
+    private static final ClassValue<ConcurrentMap<Key, UnmarshalPlan>> PLANS = new ClassValue<ConcurrentMap<Key, UnmarshalPlan>>() {
+        @Override
+        protected ConcurrentMap<Key, UnmarshalPlan> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<Key, UnmarshalPlan>(4);
+        }
+    };
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private ConstructorMetadataCache() {
+    }
+
+    static UnmarshalPlan get(Class<?> type, String configuration, InstantiationStrategy strategy) {
+        UnmarshalPlan plan = PLANS.get(type).get(new Key(configuration, strategy));
+        if (plan == null) {
+            MISSES.incrementAndGet();
+        } else {
+            HITS.incrementAndGet();
+        }
+        return plan;
+    }
+
+    static UnmarshalPlan putIfAbsent(Class<?> type, String configuration, InstantiationStrategy strategy, UnmarshalPlan plan) {
+        ConcurrentMap<Key, UnmarshalPlan> plans = PLANS.get(type);
+        if (plans.size() >= MAX_PLANS_PER_TYPE) {
+            return plan;
+        }
+        UnmarshalPlan previous = plans.putIfAbsent(new Key(configuration, strategy), plan);
+        return previous == null ? plan : previous;
+    }
+
+    static int sizeOf(Class<?> type) {
+        return PLANS.get(type).size();
+    }
+
+    /**
+     * Discards the metadata of a type, e.g. after its mapping changed
+     *
+     * @param type the type
+     */
+    public static void evict(Class<?> type) {
+        PLANS.remove(type);
+    }
+
+    /**
+     * @return how many converters were built with metadata found in the cache
+     */
+    public static long getHitCount() {
+        return HITS.get();
+    }
+
+    /**
+     * @return how many converters had to resolve their metadata
+     */
+    public static long getMissCount() {
+        return MISSES.get();
+    }
+
+    private static final class Key {
+
+        private final String configuration;
+        private final InstantiationStrategy strategy;
+
+        private Key(String configuration, InstantiationStrategy strategy) {
+            this.configuration = configuration;
+            this.strategy = strategy;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return configuration.equals(other.configuration) && strategy.equals(other.strategy);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * configuration.hashCode() + strategy.hashCode();
+        }
+    }
+
+}
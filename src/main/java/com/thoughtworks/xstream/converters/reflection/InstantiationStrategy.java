@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * <p>Strategy used by ConstructorConverter to invoke the chosen constructor.</p>
+ * <p>Converters built with equal strategies share their metadata through {@link ConstructorMetadataCache}.
+ * A configurable strategy should therefore only be equal to instances with the same configuration, as
+ * the identity based <code>equals</code> of <code>Object</code> ensures. Stateless strategies may be
+ * equal to every instance of their class.</p>
+ *
+ * @author Leonardo Wolter
+ * @see ReflectionInstantiationStrategy
+ * @see MethodHandleInstantiationStrategy
+ */
+public interface InstantiationStrategy {
+
+    /**
+     * @param constructor the constructor to be invoked
+     * @return the instantiator for the constructor
+     */
+    Instantiator instantiatorFor(Constructor<?> constructor);
+
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+/**
+ * <p>Creates instances of a type from the values read for each constructor slot.</p>
+ *
+ * @author Leonardo Wolter
+ */
+public interface Instantiator {
+
+    /**
+     * @param arguments the constructor arguments, ordered by slot
+     * @return the new instance
+     */
+    Object newInstance(Object[] arguments);
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Keeps one instance for each type and tuple of constructor arguments, so converters of immutable
+ * value types return the same instance for equal xml instead of creating a new one each time.</p>
+ * <p>The cache is bounded: it is split in segments, each one locked on its own and evicting its least
+ * recently used instance when full. It may be shared by the converters of several types and XStream
+ * instances. The arguments are compared with <code>equals</code>, so only types whose arguments
+ * implement it should be interned.</p>
+ *
+ * @author Leonardo Wolter
+ * @see ConstructorConverter.ConstructorConverterBuilder#withInterning(InterningCache)
+ */
+public final class InterningCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    /**
+     * @param maximumSize the maximum number of instances kept
+     */
+    public InterningCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size of the cache should be positive");
+        }
+        int count = Math.min(SEGMENTS, maximumSize);
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * @param type the converted type
+     * @param arguments the constructor arguments, copied when a new instance is kept
+     * @param instantiator creates the instance when none is kept for the arguments
+     * @return the kept instance
+     */
+    Object intern(Class<?> type, Object[] arguments, Instantiator instantiator) {
+        Key lookup = new Key(type, arguments);
+        Segment segment = segments[(lookup.hash & 0x7fffffff) % segments.length];
+        Object instance = segment.get(lookup);
+        if (instance != null) {
+            return instance;
+        }
+        instance = instantiator.newInstance(arguments);
+        return segment.putIfAbsent(new Key(type, arguments.clone()), instance);
+    }
+
+    /**
+     * @return the unmarshals answered with a kept instance
+     */
+    public long getHitCount() {
+        long hits = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                hits += segment.hits;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * @return the unmarshals which created an instance
+     */
+    public long getMissCount() {
+        long misses = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                misses += segment.misses;
+            }
+        }
+        return misses;
+    }
+
+    /**
+     * @return the ratio of hits among all the unmarshals, or 0 before the first one
+     */
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return the number of instances kept
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.instances.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Discards every instance kept, keeping the statistics
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.instances.clear();
+            }
+        }
+    }
+
+    private static final class Segment {
+
+        private final Map<Key, Object> instances;
+        private long hits;
+        private long misses;
+
+        private Segment(final int maximumSize) {
+            this.instances = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+                    return size() > maximumSize;
+                }
+            };
+        }
+
+        private synchronized Object get(Key key) {
+            Object instance = instances.get(key);
+            if (instance != null) {
+                hits++;
+            }
+            return instance;
+        }
+
+        private synchronized Object putIfAbsent(Key key, Object instance) {
+            misses++;
+            Object kept = instances.get(key);
+            if (kept != null) {
+                return kept;
+            }
+            instances.put(key, instance);
+            return instance;
+        }
+    }
+
+    private static final class Key {
+
+        private final Class<?> type;
+        private final Object[] arguments;
+        private final int hash;
+
+        private Key(Class<?> type, Object[] arguments) {
+            this.type = type;
+            this.arguments = arguments;
+            this.hash = 31 * type.hashCode() + Arrays.hashCode(arguments);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && type == other.type && Arrays.equals(arguments, other.arguments);
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import com.thoughtworks.xstream.converters.ConverterLookup;
+import com.thoughtworks.xstream.core.ReferenceByXPathUnmarshaller;
+import com.thoughtworks.xstream.core.util.HierarchicalStreams;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.binary.BinaryStreamReader;
+import com.thoughtworks.xstream.io.binary.BinaryStreamWriter;
+import com.thoughtworks.xstream.io.copy.HierarchicalStreamCopier;
+import com.thoughtworks.xstream.mapper.Mapper;
+
+/**
+ * <p>The value of a lazy constructor parameter. The xml node of the parameter is copied in the compact
+ * binary format of XStream and the constructor receives a proxy of the parameter interface, which
+ * converts the copy the first time one of its methods is called.</p>
+ * <p>The copy is converted on its own, resolving relative XPath references, so it must not refer to
+ * nodes outside of it.</p>
+ *
+ * @author Leonardo Wolter
+ */
+final class LazyParameter implements InvocationHandler {
+
+    private final Class<?> type;
+    private final Mapper mapper;
+    private final ConverterLookup converterLookup;
+    private byte[] node;
+    private volatile Object value;
+
+    private LazyParameter(Class<?> type, byte[] node, Mapper mapper, ConverterLookup converterLookup) {
+        this.type = type;
+        this.node = node;
+        this.mapper = mapper;
+        this.converterLookup = converterLookup;
+    }
+
+    /**
+     * Copies the node the reader is positioned at, leaving the reader at its end
+     *
+     * @return the proxy of the parameter
+     */
+    static Object capture(Class<?> type, HierarchicalStreamReader reader, Mapper mapper, ConverterLookup converterLookup) {
+        ByteArrayOutputStream node = new ByteArrayOutputStream();
+        BinaryStreamWriter writer = new BinaryStreamWriter(node);
+        new HierarchicalStreamCopier().copy(reader, writer);
+        writer.flush();
+        LazyParameter parameter = new LazyParameter(type, node.toByteArray(), mapper, converterLookup);
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, parameter);
+    }
+
+    /**
+     * @return the value behind the proxy, or the object itself if it is not a lazy parameter
+     */
+    static Object valueOf(Object object) {
+        if (object != null && Proxy.isProxyClass(object.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(object);
+            if (handler instanceof LazyParameter) {
+                return ((LazyParameter) handler).value();
+            }
+        }
+        return object;
+    }
+
+    /**
+     * @return true if the value was already converted
+     */
+    boolean isLoaded() {
+        return value != null;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(value(), args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private Object value() {
+        Object loaded = value;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = value;
+                if (loaded == null) {
+                    HierarchicalStreamReader reader = new BinaryStreamReader(new ByteArrayInputStream(node));
+                    String classAttribute = HierarchicalStreams.readClassAttribute(reader, mapper);
+                    Class<?> valueType = classAttribute == null ? type : mapper.realClass(classAttribute);
+                    loaded = new ReferenceByXPathUnmarshaller(null, reader, converterLookup, mapper).convertAnother(null, valueType);
+                    value = loaded;
+                    node = null;
+                }
+            }
+        }
+        return loaded;
+    }
+
+}
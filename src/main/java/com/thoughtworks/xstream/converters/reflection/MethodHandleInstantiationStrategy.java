@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+
+import com.thoughtworks.xstream.XStreamException;
+
+/**
+ * <p>Invokes the constructor through a {@link MethodHandle} linked once per constructor,
+ * avoiding the access and argument checks of reflection on every call.</p>
+ * <p>Falls back to {@link ReflectionInstantiationStrategy} when the constructor cannot be unreflected.</p>
+ *
+ * @author Leonardo Wolter
+ */
+public class MethodHandleInstantiationStrategy implements InstantiationStrategy {
+
+    private final InstantiationStrategy fallback = new ReflectionInstantiationStrategy();
+
+    public Instantiator instantiatorFor(Constructor<?> constructor) {
+        try {
+            constructor.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflectConstructor(constructor)
+                .asSpreader(Object[].class, constructor.getParameterTypes().length)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+            return new MethodHandleInstantiator(handle);
+        } catch (IllegalAccessException e) {
+            return fallback.instantiatorFor(constructor);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj != null && obj.getClass() == getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    private static class MethodHandleInstantiator implements Instantiator {
+
+        private final MethodHandle handle;
+
+        private MethodHandleInstantiator(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        public Object newInstance(Object[] arguments) {
+            try {
+                return (Object) handle.invokeExact(arguments);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new XStreamException(e);
+            }
+        }
+    }
+
+}
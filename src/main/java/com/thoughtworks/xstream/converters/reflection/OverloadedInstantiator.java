@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.thoughtworks.xstream.XStreamException;
+
+/**
+ * <p>Chooses, among several annotated constructors, the one matching the xml nodes read.</p>
+ * <p>The nodes of every constructor are merged into one set of slots and each constructor is described
+ * by the bitmask of its slots. When the arguments are complete, the mask of the slots holding a value
+ * selects the constructor which takes the most of them, then the one leaving the fewest parameters
+ * without a value, then the one with fewer parameters. A constructor is never chosen when one of its
+ * primitive parameters has no value. For up to {@link #TABLE_SLOTS} slots the choice for every mask is
+ * computed when the plan is built. When the chosen constructor does not take every value read, the
+ * instantiation fails instead of dropping the others.</p>
+ * <p>A node holding an explicit null counts as absent.</p>
+ * <p>The generic type of a slot is taken from the constructors declaring it. When they declare different
+ * generic types for the same node, the slot keeps its raw type, so its collection is read untyped.</p>
+ *
+ * @author Leonardo Wolter
+ */
+final class OverloadedInstantiator implements Instantiator {
+
+    static final int MAX_SLOTS = 64;
+    static final int TABLE_SLOTS = 12;
+
+    private static final int NONE = -1;
+
+    private final Class<?> type;
+    private final String[] names;
+    private final long[] masks;
+    private final long[] required;
+    private final int[][] slots;
+    private final Instantiator[] instantiators;
+    private final int[] table;
+    private final Type[] genericParameterTypes;
+
+    private OverloadedInstantiator(Class<?> type, String[] names, long[] masks, long[] required, int[][] slots,
+            Instantiator[] instantiators, Type[] genericParameterTypes) {
+        this.type = type;
+        this.genericParameterTypes = genericParameterTypes;
+        this.names = names;
+        this.masks = masks;
+        this.required = required;
+        this.slots = slots;
+        this.instantiators = instantiators;
+        if (names.length <= TABLE_SLOTS) {
+            this.table = new int[1 << names.length];
+            for (int present = 0; present < table.length; present++) {
+                table[present] = select(present);
+            }
+        } else {
+            this.table = null;
+        }
+    }
+
+    /**
+     * @param constructors the annotated constructors
+     * @param names the xml nodes of each constructor
+     * @param instantiationStrategy how each constructor is invoked
+     * @return the plan reading the nodes of every constructor
+     */
+    static UnmarshalPlan planOf(List<Constructor<?>> constructors, List<String[]> names, InstantiationStrategy instantiationStrategy) {
+        Class<?> type = constructors.get(0).getDeclaringClass();
+        Integer[] order = new Integer[constructors.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        final List<Constructor<?>> sorted = constructors;
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer first, Integer second) {
+                int byArity = sorted.get(first).getParameterTypes().length - sorted.get(second).getParameterTypes().length;
+                return byArity != 0 ? byArity : sorted.get(first).toGenericString().compareTo(sorted.get(second).toGenericString());
+            }
+        });
+        Map<String, Integer> unionSlots = new LinkedHashMap<String, Integer>();
+        List<Class<?>> unionTypes = new ArrayList<Class<?>>();
+        List<Type> unionGenericTypes = new ArrayList<Type>();
+        long[] masks = new long[order.length];
+        long[] required = new long[order.length];
+        int[][] slots = new int[order.length][];
+        Instantiator[] instantiators = new Instantiator[order.length];
+        for (int i = 0; i < order.length; i++) {
+            Constructor<?> constructor = constructors.get(order[i]);
+            String[] constructorNames = names.get(order[i]);
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            Type[] genericTypes = constructor.getGenericParameterTypes();
+            if (genericTypes.length != parameterTypes.length) {
+                genericTypes = parameterTypes;
+            }
+            if (constructorNames.length != parameterTypes.length) {
+                throw new IllegalArgumentException("The count of constructor parameters should be equal to xml field names conut");
+            }
+            slots[i] = new int[parameterTypes.length];
+            for (int j = 0; j < parameterTypes.length; j++) {
+                Integer slot = unionSlots.get(constructorNames[j]);
+                if (slot == null) {
+                    slot = unionSlots.size();
+                    if (slot == MAX_SLOTS) {
+                        throw new IllegalArgumentException("The constructors of " + type.getName() + " read more than " + MAX_SLOTS + " xml nodes");
+                    }
+                    unionSlots.put(constructorNames[j], slot);
+                    unionTypes.add(parameterTypes[j]);
+                    unionGenericTypes.add(genericTypes[j]);
+                } else if (unionTypes.get(slot) != parameterTypes[j]) {
+                    throw new IllegalArgumentException("The xml node " + constructorNames[j] + " of " + type.getName()
+                        + " is mapped to parameters of different types");
+                } else if (!unionGenericTypes.get(slot).equals(genericTypes[j])) {
+                    unionGenericTypes.set(slot, parameterTypes[j]);
+                }
+                slots[i][j] = slot;
+                masks[i] |= 1L << slot;
+                if (parameterTypes[j].isPrimitive()) {
+                    required[i] |= 1L << slot;
+                }
+            }
+            instantiators[i] = instantiationStrategy.instantiatorFor(constructor);
+        }
+        String[] unionNames = unionSlots.keySet().toArray(new String[unionSlots.size()]);
+        OverloadedInstantiator instantiator = new OverloadedInstantiator(type, unionNames, masks, required, slots, instantiators,
+            unionGenericTypes.toArray(new Type[unionGenericTypes.size()]));
+        return new UnmarshalPlan(unionNames, unionTypes.toArray(new Class<?>[unionTypes.size()]), instantiator);
+    }
+
+    /**
+     * @return the generic type of each slot
+     */
+    Type[] genericParameterTypes() {
+        return genericParameterTypes.clone();
+    }
+
+    public Object newInstance(Object[] arguments) {
+        long present = 0;
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] != null) {
+                present |= 1L << i;
+            }
+        }
+        int chosen = table == null ? select(present) : table[(int) present];
+        if (chosen == NONE) {
+            throw new XStreamException("No annotated constructor of " + type.getName() + " accepts the xml nodes " + namesOf(present));
+        }
+        long dropped = present & ~masks[chosen];
+        if (dropped != 0) {
+            throw new XStreamException("No annotated constructor of " + type.getName() + " accepts the xml nodes "
+                + namesOf(dropped) + " together with " + namesOf(present & masks[chosen]));
+        }
+        int[] constructorSlots = slots[chosen];
+        Object[] constructorArguments = new Object[constructorSlots.length];
+        for (int i = 0; i < constructorSlots.length; i++) {
+            constructorArguments[i] = arguments[constructorSlots[i]];
+        }
+        return instantiators[chosen].newInstance(constructorArguments);
+    }
+
+    private List<String> namesOf(long mask) {
+        List<String> read = new ArrayList<String>();
+        for (int i = 0; i < names.length; i++) {
+            if ((mask & 1L << i) != 0) {
+                read.add(names[i]);
+            }
+        }
+        return read;
+    }
+
+    /**
+     * @param present the mask of the slots holding a value
+     * @return the index of the chosen constructor or {@link #NONE}
+     */
+    int select(long present) {
+        int chosen = NONE;
+        int chosenTaken = -1;
+        int chosenMissing = 0;
+        for (int i = 0; i < masks.length; i++) {
+            if ((required[i] & ~present) != 0) {
+                continue;
+            }
+            int taken = Long.bitCount(masks[i] & present);
+            int missing = Long.bitCount(masks[i] & ~present);
+            if (taken > chosenTaken || (taken == chosenTaken && missing < chosenMissing)) {
+                chosen = i;
+                chosenTaken = taken;
+                chosenMissing = missing;
+            }
+        }
+        return chosen;
+    }
+
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.XStreamException;
+import com.thoughtworks.xstream.converters.ConversionException;
+import com.thoughtworks.xstream.core.util.Primitives;
+import com.thoughtworks.xstream.io.binary.BinaryStreamReader;
+import com.thoughtworks.xstream.io.binary.BinaryStreamWriter;
+
+/**
+ * <p>Writes and reads the types of constructor converters in a compact binary format without node names:
+ * the values of each type are written in the order of its constructor parameters.</p>
+ * <p>Primitives, their wrappers, strings and enums are written as binary values, types of the codec as
+ * their parameters and collections whose element type is known, see
+ * {@link ConstructorConverter.ConstructorConverterBuilder#withTypedCollections()}, as their size
+ * followed by their elements. Any other value is written by XStream in its binary format. A value whose
+ * class differs from the default implementation of its parameter is preceded by its class name.</p>
+ * <p>An instance of a codec type written again in the same stream is written as the index of its first
+ * occurrence. Instances are indexed once they are completely written, in the order their constructors
+ * are called when reading, so the reader keeps them in a list. An instance that refers back to itself
+ * cannot be written.</p>
+ * <p>The stream starts with a fingerprint of the parameters of the written type and of the types it
+ * refers to, which the reader compares to its own, so both sides must use the same classes and
+ * converter configuration. Writing requires converters built with the built-in marshalling. The codec
+ * keeps no state between calls and shares the thread safety of its XStream instance.</p>
+ *
+ * @author Leonardo Wolter
+ */
+public class PositionalCodec {
+
+    private static final int MAGIC = 0x58535043;
+    private static final int VERSION = 2;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte NULL = 0;
+    private static final byte DECLARED = 1;
+    private static final byte TYPED = 2;
+    private static final byte REFERENCE = 3;
+
+    private final XStream xstream;
+    private final Map<Class<?>, ConstructorConverter> converters = new HashMap<Class<?>, ConstructorConverter>();
+
+    /**
+     * @param xstream the instance writing the values which are not of a codec type
+     * @param converters the converters of the codec types
+     */
+    public PositionalCodec(XStream xstream, Collection<ConstructorConverter> converters) {
+        this.xstream = xstream;
+        for (ConstructorConverter converter : converters) {
+            this.converters.put(converter.getType(), converter);
+        }
+    }
+
+    /**
+     * @param xstream the instance writing the values which are not of a codec type
+     * @param registry the registry whose types are the codec types
+     */
+    public PositionalCodec(XStream xstream, ConstructorConverterRegistry registry) {
+        this.xstream = xstream;
+        for (Class<?> type : registry.getTypes()) {
+            this.converters.put(type, registry.converterFor(type));
+        }
+    }
+
+    /**
+     * @param value an instance of a codec type
+     * @param output the stream, which is flushed but not closed
+     */
+    public void write(Object value, OutputStream output) throws IOException {
+        Class<?> type = value.getClass();
+        converterOf(type);
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeLong(fingerprintOf(type));
+        writeValue(out, type, null, value, new Written());
+        out.flush();
+    }
+
+    /**
+     * @param type the codec type written to the stream
+     * @param input the stream
+     * @return the instance read
+     * @throws XStreamException if the stream was written with another schema
+     */
+    public <T> T read(Class<T> type, InputStream input) throws IOException {
+        converterOf(type);
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC) {
+            throw new XStreamException("The stream was not written by a PositionalCodec");
+        }
+        long fingerprint = in.readLong();
+        if (fingerprint != fingerprintOf(type)) {
+            throw new XStreamException("The stream was written with another schema of " + type.getName());
+        }
+        return type.cast(readValue(in, type, null, new ArrayList<Object>()));
+    }
+
+    /**
+     * @param type a codec type
+     * @return the fingerprint of the parameters of the type and of the codec types they refer to
+     */
+    public long fingerprintOf(Class<?> type) {
+        StringBuilder schema = new StringBuilder().append(VERSION);
+        describe(type, schema, new HashSet<Class<?>>());
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < schema.length(); i++) {
+            hash ^= schema.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private void describe(Class<?> type, StringBuilder schema, Set<Class<?>> described) {
+        schema.append('{').append(type.getName());
+        if (described.add(type)) {
+            UnmarshalPlan plan = converterOf(type).plan();
+            for (int i = 0; i < plan.size(); i++) {
+                Class<?> parameterType = plan.parameterTypeAt(i);
+                Class<?> elementType = plan.elementTypeAt(i);
+                schema.append(';').append(plan.nameAt(i)).append(':').append(parameterType.getName());
+                if (elementType != null) {
+                    schema.append('<').append(elementType.getName()).append('>');
+                }
+                if (converters.containsKey(parameterType)) {
+                    describe(parameterType, schema, described);
+                }
+                if (elementType != null && converters.containsKey(elementType)) {
+                    describe(elementType, schema, described);
+                }
+            }
+        }
+        schema.append('}');
+    }
+
+    private ConstructorConverter converterOf(Class<?> type) {
+        ConstructorConverter converter = converters.get(type);
+        if (converter == null) {
+            throw new IllegalArgumentException("No constructor converter given for " + type.getName());
+        }
+        return converter;
+    }
+
+    private Class<?> implementationOf(Class<?> declaredType) {
+        return declaredType.isPrimitive() ? Primitives.box(declaredType) : xstream.getMapper().defaultImplementationOf(declaredType);
+    }
+
+    private void writeValue(DataOutputStream out, Class<?> declaredType, Class<?> elementType, Object value,
+            Written written) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        boolean codecType = converters.containsKey(value.getClass());
+        if (codecType && written.indexes.containsKey(value)) {
+            Integer index = written.indexes.get(value);
+            if (index == null) {
+                ConversionException e = new ConversionException("Cannot write a cyclic reference");
+                e.add("class", value.getClass().getName());
+                throw e;
+            }
+            out.writeByte(REFERENCE);
+            out.writeInt(index.intValue());
+            return;
+        }
+        if (codecType) {
+            written.indexes.put(value, null);
+        }
+        Class<?> implementation = implementationOf(declaredType);
+        if (value.getClass() == implementation || (declaredType.isEnum() && declaredType.isInstance(value))) {
+            out.writeByte(DECLARED);
+            writeBody(out, implementation, elementType, value, written);
+        } else {
+            out.writeByte(TYPED);
+            writeString(out, value.getClass().getName());
+            writeBody(out, value.getClass(), null, value, written);
+        }
+        if (codecType) {
+            written.indexes.put(value, Integer.valueOf(written.completed++));
+        }
+    }
+
+    private void writeBody(DataOutputStream out, Class<?> type, Class<?> elementType, Object value,
+            Written written) throws IOException {
+        if (type == String.class) {
+            writeString(out, (String) value);
+        } else if (type == Integer.class) {
+            out.writeInt(((Integer) value).intValue());
+        } else if (type == Long.class) {
+            out.writeLong(((Long) value).longValue());
+        } else if (type == Double.class) {
+            out.writeDouble(((Double) value).doubleValue());
+        } else if (type == Boolean.class) {
+            out.writeBoolean(((Boolean) value).booleanValue());
+        } else if (type == Float.class) {
+            out.writeFloat(((Float) value).floatValue());
+        } else if (type == Short.class) {
+            out.writeShort(((Short) value).shortValue());
+        } else if (type == Byte.class) {
+            out.writeByte(((Byte) value).byteValue());
+        } else if (type == Character.class) {
+            out.writeChar(((Character) value).charValue());
+        } else if (value instanceof Enum) {
+            writeString(out, ((Enum<?>) value).name());
+        } else if (converters.containsKey(type)) {
+            ConstructorConverter converter = converters.get(type);
+            UnmarshalPlan plan = converter.plan();
+            if (!plan.isMarshallable()) {
+                throw new IllegalArgumentException("The converter of " + type.getName() + " was built without marshalling");
+            }
+            for (int i = 0; i < plan.size(); i++) {
+                writeValue(out, plan.parameterTypeAt(i), plan.elementTypeAt(i), LazyParameter.valueOf(plan.valueAt(i, value)),
+                    written);
+            }
+        } else if (elementType != null && value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            out.writeInt(collection.size());
+            for (Object element : collection) {
+                writeValue(out, elementType, null, element, written);
+            }
+        } else {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            BinaryStreamWriter writer = new BinaryStreamWriter(buffer);
+            xstream.marshal(value, writer);
+            writer.flush();
+            out.writeInt(buffer.size());
+            buffer.writeTo(out);
+        }
+    }
+
+    private Object readValue(DataInputStream in, Class<?> declaredType, Class<?> elementType, List<Object> read)
+            throws IOException {
+        byte tag = in.readByte();
+        if (tag == NULL) {
+            return null;
+        }
+        if (tag == DECLARED) {
+            return readBody(in, declaredType.isEnum() ? declaredType : implementationOf(declaredType), elementType, read);
+        }
+        if (tag == TYPED) {
+            return readBody(in, xstream.getMapper().realClass(readString(in)), null, read);
+        }
+        if (tag == REFERENCE) {
+            int index = in.readInt();
+            if (index < 0 || index >= read.size()) {
+                throw new XStreamException("Corrupted positional stream: unknown reference " + index);
+            }
+            return read.get(index);
+        }
+        throw new XStreamException("Corrupted positional stream: unknown value tag " + tag);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private Object readBody(DataInputStream in, Class<?> type, Class<?> elementType, List<Object> read)
+            throws IOException {
+        if (type == String.class) {
+            return readString(in);
+        } else if (type == Integer.class) {
+            return Integer.valueOf(in.readInt());
+        } else if (type == Long.class) {
+            return Long.valueOf(in.readLong());
+        } else if (type == Double.class) {
+            return Double.valueOf(in.readDouble());
+        } else if (type == Boolean.class) {
+            return Boolean.valueOf(in.readBoolean());
+        } else if (type == Float.class) {
+            return Float.valueOf(in.readFloat());
+        } else if (type == Short.class) {
+            return Short.valueOf(in.readShort());
+        } else if (type == Byte.class) {
+            return Byte.valueOf(in.readByte());
+        } else if (type == Character.class) {
+            return Character.valueOf(in.readChar());
+        } else if (type.isEnum()) {
+            return Enum.valueOf((Class) type, readString(in));
+        } else if (converters.containsKey(type)) {
+            ConstructorConverter converter = converters.get(type);
+            UnmarshalPlan plan = converter.plan();
+            Object[] arguments = new Object[plan.size()];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = readValue(in, plan.parameterTypeAt(i), plan.elementTypeAt(i), read);
+            }
+            Object instance = converter.newInstance(arguments);
+            read.add(instance);
+            return instance;
+        } else if (elementType != null && Collection.class.isAssignableFrom(type)) {
+            int size = in.readInt();
+            Collection collection = newCollection(type);
+            for (int i = 0; i < size; i++) {
+                collection.add(readValue(in, elementType, null, read));
+            }
+            return collection;
+        } else {
+            byte[] buffer = new byte[in.readInt()];
+            in.readFully(buffer);
+            return xstream.unmarshal(new BinaryStreamReader(new ByteArrayInputStream(buffer)));
+        }
+    }
+
+    private Collection<?> newCollection(Class<?> type) {
+        try {
+            return (Collection<?>) type.newInstance();
+        } catch (InstantiationException e) {
+            throw new XStreamException("Could not instantiate " + type.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new XStreamException("Could not instantiate " + type.getName(), e);
+        }
+    }
+
+    private static final class Written {
+        private final Map<Object, Integer> indexes = new IdentityHashMap<Object, Integer>();
+        private int completed;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+}
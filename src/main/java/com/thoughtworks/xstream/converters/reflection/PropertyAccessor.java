@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import com.thoughtworks.xstream.XStreamException;
+
+/**
+ * <p>Reads the value written for a constructor slot, through the field or the getter matching its xml node name.</p>
+ * <p>The node name is tried as is and in camel case (<code>first-name</code> as <code>firstName</code>),
+ * first as a field of the type or of its super classes and then as a <code>get</code> or <code>is</code> method.
+ * The accessor is linked once, as a method handle.</p>
+ *
+ * @author Leonardo Wolter
+ */
+final class PropertyAccessor {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final MethodHandle getter;
+
+    private PropertyAccessor(MethodHandle getter) {
+        this.getter = getter.asType(GETTER_TYPE);
+    }
+
+    /**
+     * @param type the type declaring the property
+     * @param nodeName the xml node name of the property
+     * @return the accessor or null if no field or getter matches the name
+     */
+    static PropertyAccessor forProperty(Class<?> type, String nodeName) {
+        String camelCase = camelCase(nodeName);
+        try {
+            Field field = fieldOf(type, nodeName);
+            if (field == null) {
+                field = fieldOf(type, camelCase);
+            }
+            if (field != null) {
+                field.setAccessible(true);
+                return new PropertyAccessor(MethodHandles.lookup().unreflectGetter(field));
+            }
+            String capitalized = Character.toUpperCase(camelCase.charAt(0)) + camelCase.substring(1);
+            Method method = getterOf(type, "get" + capitalized);
+            if (method == null) {
+                method = getterOf(type, "is" + capitalized);
+            }
+            if (method != null) {
+                method.setAccessible(true);
+                return new PropertyAccessor(MethodHandles.lookup().unreflect(method));
+            }
+            return null;
+        } catch (IllegalAccessException e) {
+            throw new XStreamException("Could not access property " + nodeName + " of " + type.getName(), e);
+        }
+    }
+
+    Object valueOf(Object source) {
+        try {
+            return (Object) getter.invokeExact(source);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new XStreamException(e);
+        }
+    }
+
+    private static Field fieldOf(Class<?> type, String name) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.getName().equals(name) && !Modifier.isStatic(field.getModifiers())) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Method getterOf(Class<?> type, String name) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.getName().equals(name) && method.getParameterTypes().length == 0
+                    && method.getReturnType() != void.class && !Modifier.isStatic(method.getModifiers())) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String camelCase(String nodeName) {
+        StringBuilder camelCase = new StringBuilder(nodeName.length());
+        boolean upper = false;
+        for (char c : nodeName.toCharArray()) {
+            if (c == '-' || c == '_' || c == '.') {
+                upper = camelCase.length() > 0;
+            } else {
+                camelCase.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return camelCase.length() == 0 ? nodeName : camelCase.toString();
+    }
+
+}
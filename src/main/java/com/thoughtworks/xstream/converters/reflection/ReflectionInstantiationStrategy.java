@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+import com.thoughtworks.xstream.XStreamException;
+
+/**
+ * <p>Invokes the constructor through {@link Constructor#newInstance(Object...)}.</p>
+ * <p>This is the default strategy and works on every JVM.</p>
+ *
+ * @author Leonardo Wolter
+ */
+public class ReflectionInstantiationStrategy implements InstantiationStrategy {
+
+    public Instantiator instantiatorFor(final Constructor<?> constructor) {
+        constructor.setAccessible(true);
+        return new Instantiator() {
+            public Object newInstance(Object[] arguments) {
+                try {
+                    return constructor.newInstance(arguments);
+                } catch (InstantiationException e) {
+                    throw new XStreamException(e);
+                } catch (IllegalAccessException e) {
+                    throw new XStreamException(e);
+                } catch (IllegalArgumentException e) {
+                    throw new XStreamException(e);
+                } catch (InvocationTargetException e) {
+                    throw new XStreamException(e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj != null && obj.getClass() == getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.thoughtworks.xstream.converters.ConversionException;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+
+/**
+ * <p>Reads the value of a primitive, wrapper, String or enum parameter straight from the text of its
+ * xml node, with the same rules as the XStream default converters of those types, so the
+ * {@link ConstructorConverter} does not go through the converter lookup for them.</p>
+ *
+ * @author Leonardo Wolter
+ */
+abstract class SimpleValueParser {
+
+    private static final Map<Class<?>, SimpleValueParser> PARSERS = new HashMap<Class<?>, SimpleValueParser>();
+
+    static {
+        SimpleValueParser intParser = new SimpleValueParser() {
+            Object parse(String value) {
+                long parsed = Long.decode(value).longValue();
+                if (parsed < Integer.MIN_VALUE || parsed > 0xFFFFFFFFL) {
+                    throw new NumberFormatException("For input string: \"" + value + '"');
+                }
+                return Integer.valueOf((int) parsed);
+            }
+        };
+        SimpleValueParser longParser = new SimpleValueParser() {
+            Object parse(String value) {
+                return Long.decode(value);
+            }
+        };
+        SimpleValueParser shortParser = new SimpleValueParser() {
+            Object parse(String value) {
+                int parsed = Integer.decode(value).intValue();
+                if (parsed < Short.MIN_VALUE || parsed > 0xFFFF) {
+                    throw new NumberFormatException("For input string: \"" + value + '"');
+                }
+                return Short.valueOf((short) parsed);
+            }
+        };
+        SimpleValueParser byteParser = new SimpleValueParser() {
+            Object parse(String value) {
+                int parsed = Integer.decode(value).intValue();
+                if (parsed < Byte.MIN_VALUE || parsed > 0xFF) {
+                    throw new NumberFormatException("For input string: \"" + value + '"');
+                }
+                return Byte.valueOf((byte) parsed);
+            }
+        };
+        SimpleValueParser doubleParser = new SimpleValueParser() {
+            Object parse(String value) {
+                return Double.valueOf(value);
+            }
+        };
+        SimpleValueParser floatParser = new SimpleValueParser() {
+            Object parse(String value) {
+                return Float.valueOf(value);
+            }
+        };
+        SimpleValueParser booleanParser = new SimpleValueParser() {
+            Object parse(String value) {
+                return "true".equalsIgnoreCase(value) ? Boolean.TRUE : Boolean.FALSE;
+            }
+        };
+        SimpleValueParser charParser = new SimpleValueParser() {
+            Object read(HierarchicalStreamReader reader) {
+                return "true".equals(reader.getAttribute("null")) ? Character.valueOf('\0') : parse(reader.getValue());
+            }
+
+            Object parse(String value) {
+                return Character.valueOf(value.length() == 0 ? '\0' : value.charAt(0));
+            }
+        };
+        register(intParser, int.class, Integer.class);
+        register(longParser, long.class, Long.class);
+        register(shortParser, short.class, Short.class);
+        register(byteParser, byte.class, Byte.class);
+        register(doubleParser, double.class, Double.class);
+        register(floatParser, float.class, Float.class);
+        register(booleanParser, boolean.class, Boolean.class);
+        register(charParser, char.class, Character.class);
+        register(new SimpleValueParser() {
+            Object parse(String value) {
+                return value;
+            }
+        }, String.class);
+    }
+
+    private static void register(SimpleValueParser parser, Class<?>... types) {
+        for (Class<?> type : types) {
+            PARSERS.put(type, parser);
+        }
+    }
+
+    /**
+     * @param type the parameter type
+     * @return the parser of the type, or null if its values must be converted by XStream
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    static SimpleValueParser forType(Class<?> type) {
+        if (type.isEnum()) {
+            return new EnumParser(type);
+        }
+        return PARSERS.get(type);
+    }
+
+    /**
+     * @param reader the reader positioned at the xml node of the value
+     * @return the value
+     */
+    Object read(HierarchicalStreamReader reader) {
+        String value = reader.getValue();
+        try {
+            return parse(value);
+        } catch (IllegalArgumentException e) {
+            throw new ConversionException("Could not parse \"" + value + "\" of " + reader.getNodeName(), e);
+        }
+    }
+
+    abstract Object parse(String value);
+
+    private static class EnumParser<E extends Enum<E>> extends SimpleValueParser {
+
+        private final Class<E> type;
+
+        private EnumParser(Class<E> type) {
+            this.type = type;
+        }
+
+        Object parse(String value) {
+            return Enum.valueOf(type, value);
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.thoughtworks.xstream.core.util.FastStack;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.StreamException;
+import com.thoughtworks.xstream.io.xml.AbstractPullReader;
+import com.thoughtworks.xstream.io.xml.StaxReader;
+
+/**
+ * <p>Skips the content of an ignored xml node by advancing the <code>XMLStreamReader</code> beneath a
+ * {@link StaxReader}, so the text and the names of its nested nodes are never built. The end of the node
+ * is handed back to the reader, so the following <code>moveUp()</code> leaves the node as usual.</p>
+ * <p>The reader fields are reached by reflection. When they cannot be, or when the reader holds events
+ * it has read ahead, nothing is skipped and the node is left to the reader.</p>
+ *
+ * @author Leonardo Wolter
+ */
+final class StaxSubtreeSkipper {
+
+    private static final int END_NODE = 2;
+
+    private static final Field IN;
+    private static final Field LOOKBACK;
+    private static final Field MARKED;
+    private static final Constructor<?> EVENT;
+    private static final Field EVENT_TYPE;
+
+    static {
+        Field in = null;
+        Field lookback = null;
+        Field marked = null;
+        Constructor<?> event = null;
+        Field eventType = null;
+        try {
+            in = accessible(StaxReader.class.getDeclaredField("in"));
+            lookback = accessible(AbstractPullReader.class.getDeclaredField("lookback"));
+            marked = accessible(AbstractPullReader.class.getDeclaredField("marked"));
+            Class<?> eventClass = Class.forName(AbstractPullReader.class.getName() + "$Event");
+            event = eventClass.getDeclaredConstructor();
+            event.setAccessible(true);
+            eventType = accessible(eventClass.getDeclaredField("type"));
+        } catch (Exception e) {
+            in = null;
+        }
+        IN = in;
+        LOOKBACK = lookback;
+        MARKED = marked;
+        EVENT = event;
+        EVENT_TYPE = eventType;
+    }
+
+    private StaxSubtreeSkipper() {
+    }
+
+    /**
+     * Skips the content of the current node, which must have just been entered
+     *
+     * @param reader the reader positioned at the start of the node
+     * @return false if the reader is not backed by StAX and the node was left untouched
+     */
+    static boolean skip(HierarchicalStreamReader reader) {
+        if (IN == null) {
+            return false;
+        }
+        HierarchicalStreamReader underlying = reader.underlyingReader();
+        if (!(underlying instanceof StaxReader)) {
+            return false;
+        }
+        try {
+            FastStack lookback = (FastStack) LOOKBACK.get(underlying);
+            if (lookback.hasStuff() || MARKED.getBoolean(underlying)) {
+                return false;
+            }
+            skipToEnd((XMLStreamReader) IN.get(underlying));
+            Object end = EVENT.newInstance();
+            EVENT_TYPE.setInt(end, END_NODE);
+            lookback.push(end);
+            return true;
+        } catch (XMLStreamException e) {
+            throw new StreamException(e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not skip the xml node " + reader.getNodeName(), e);
+        }
+    }
+
+    private static void skipToEnd(XMLStreamReader in) throws XMLStreamException {
+        int depth = 0;
+        while (true) {
+            switch (in.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (depth == 0) {
+                        return;
+                    }
+                    depth--;
+                    break;
+                case XMLStreamConstants.END_DOCUMENT:
+                    throw new XMLStreamException("Unexpected end of document");
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static Field accessible(Field field) {
+        field.setAccessible(true);
+        return field;
+    }
+
+}
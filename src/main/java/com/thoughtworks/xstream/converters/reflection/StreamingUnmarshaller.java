@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.core.TreeUnmarshaller;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+
+/**
+ * <p>Iterates over the children of a container node, building each one with a ConstructorConverter
+ * as soon as its node is read, so the whole collection is never held in memory.</p>
+ * <p>The reader must be positioned on the container node and should be a streaming one, e.g. created by
+ * <code>StaxDriver</code> or <code>XppDriver</code>. Each element is converted independently: references
+ * between elements are not resolved and completion callbacks are not run.</p>
+ * <pre>
+ * StreamingUnmarshaller&lt;Product&gt; products = new StreamingUnmarshaller&lt;Product&gt;(xstream, productConverter, Product.class, reader);
+ * products.forEachBatch(500, new BatchHandler&lt;Product&gt;() { ... });
+ * </pre>
+ *
+ * @author Leonardo Wolter
+ */
+public class StreamingUnmarshaller<T> implements Iterator<T> {
+
+    private final ConstructorConverter converter;
+    private final Class<T> type;
+    private final HierarchicalStreamReader reader;
+    private final TreeUnmarshaller context;
+
+    /**
+     * @param xstream the instance whose converters and mapper convert the nested values
+     * @param converter the converter of the elements
+     * @param type the type of the elements
+     * @param reader the reader positioned on the container node
+     */
+    public StreamingUnmarshaller(XStream xstream, ConstructorConverter converter, Class<T> type, HierarchicalStreamReader reader) {
+        if (!converter.canConvert(type)) {
+            throw new IllegalArgumentException("The converter cannot convert " + type.getName());
+        }
+        this.converter = converter;
+        this.type = type;
+        this.reader = reader;
+        this.context = new TreeUnmarshaller(null, reader, xstream.getConverterLookup(), xstream.getMapper());
+    }
+
+    public boolean hasNext() {
+        return reader.hasMoreChildren();
+    }
+
+    public T next() {
+        if (!reader.hasMoreChildren()) {
+            throw new NoSuchElementException();
+        }
+        reader.moveDown();
+        Object element = context.convertAnother(null, type, converter);
+        reader.moveUp();
+        return type.cast(element);
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException("");
+    }
+
+    /**
+     * Reads the remaining elements, handing them over in batches
+     *
+     * @param size the maximum size of each batch
+     * @param handler the handler of the batches, which may keep them
+     */
+    public void forEachBatch(int size, BatchHandler<T> handler) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The size of the batches should be positive");
+        }
+        List<T> batch = new ArrayList<T>(size);
+        while (hasNext()) {
+            batch.add(next());
+            if (batch.size() == size) {
+                handler.handle(batch);
+                batch = new ArrayList<T>(size);
+            }
+        }
+        if (!batch.isEmpty()) {
+            handler.handle(batch);
+        }
+    }
+
+    /**
+     * Receives the elements read by {@link StreamingUnmarshaller#forEachBatch(int, BatchHandler)}
+     */
+    public interface BatchHandler<T> {
+
+        /**
+         * @param batch the elements of the batch, in document order
+         */
+        void handle(List<T> batch);
+
+    }
+
+}
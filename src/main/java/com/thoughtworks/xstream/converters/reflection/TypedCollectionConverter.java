@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+
+import com.thoughtworks.xstream.XStreamException;
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.ConverterLookup;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.core.util.HierarchicalStreams;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.Mapper;
+
+/**
+ * <p>Reads a collection parameter whose element type is known from the generic signature of the
+ * constructor. The elements named after the alias of that type are converted to it straight away,
+ * while any other element is resolved from its name or <code>class</code> attribute as XStream does.</p>
+ * <p>It is only called by the {@link ConstructorConverter} through
+ * {@link UnmarshallingContext#convertAnother(Object, Class, Converter)}, so the collection is still
+ * registered as a target of references.</p>
+ *
+ * @author Leonardo Wolter
+ */
+final class TypedCollectionConverter implements Converter {
+
+    private final Class<?> collectionType;
+    private final Class<?> declaredType;
+    private final Class<?> elementType;
+    private final Constructor<?> constructor;
+    private final boolean presized;
+    private final int capacity;
+    private final boolean unmodifiable;
+    private final Mapper mapper;
+    private final ConverterLookup converterLookup;
+    private volatile Converter elementConverter;
+
+    private TypedCollectionConverter(Class<?> declaredType, Class<?> elementType, int capacity, boolean unmodifiable,
+            Mapper mapper, ConverterLookup converterLookup) {
+        this.declaredType = declaredType;
+        this.collectionType = mapper.defaultImplementationOf(declaredType);
+        this.elementType = elementType;
+        this.capacity = capacity;
+        this.unmodifiable = unmodifiable && declaredType.isInterface();
+        this.mapper = mapper;
+        this.converterLookup = converterLookup;
+        Constructor<?> sized = null;
+        if (capacity > 0) {
+            try {
+                sized = collectionType.getConstructor(int.class);
+            } catch (NoSuchMethodException e) {
+                sized = null;
+            }
+        }
+        this.presized = sized != null;
+        try {
+            this.constructor = presized ? sized : collectionType.getConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Could not find the default constructor of " + collectionType.getName(), e);
+        }
+    }
+
+    /**
+     * @param parameterType the generic type of the constructor parameter
+     * @return the element type of a collection parameter, or null if the parameter is not a collection
+     *         of a known class
+     */
+    static Class<?> elementTypeOf(Type parameterType) {
+        if (!(parameterType instanceof ParameterizedType)) {
+            return null;
+        }
+        ParameterizedType parameterized = (ParameterizedType) parameterType;
+        Type raw = parameterized.getRawType();
+        if (!(raw instanceof Class) || !Collection.class.isAssignableFrom((Class<?>) raw)
+                || parameterized.getActualTypeArguments().length != 1) {
+            return null;
+        }
+        Type element = parameterized.getActualTypeArguments()[0];
+        if (element instanceof WildcardType && ((WildcardType) element).getLowerBounds().length == 0) {
+            element = ((WildcardType) element).getUpperBounds()[0];
+        }
+        if (element instanceof ParameterizedType) {
+            element = ((ParameterizedType) element).getRawType();
+        }
+        return element instanceof Class && element != Object.class ? (Class<?>) element : null;
+    }
+
+    /**
+     * @return the converter of the parameter, or null if its collection type can not be instantiated
+     */
+    static TypedCollectionConverter forParameter(Class<?> declaredType, Class<?> elementType, int capacity,
+            boolean unmodifiable, Mapper mapper, ConverterLookup converterLookup) {
+        Class<?> collectionType = mapper.defaultImplementationOf(declaredType);
+        if (collectionType.isInterface() || Modifier.isAbstract(collectionType.getModifiers())) {
+            return null;
+        }
+        return new TypedCollectionConverter(declaredType, elementType, capacity, unmodifiable, mapper, converterLookup);
+    }
+
+    @SuppressWarnings("rawtypes")
+    public boolean canConvert(Class type) {
+        return collectionType == type;
+    }
+
+    public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+        throw new UnsupportedOperationException("");
+    }
+
+    public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+        Collection<Object> collection = newCollection();
+        String elementName = mapper.serializedClass(elementType);
+        while (reader.hasMoreChildren()) {
+            reader.moveDown();
+            Object element;
+            String classAttribute = HierarchicalStreams.readClassAttribute(reader, mapper);
+            if (classAttribute == null && elementName.equals(reader.getNodeName())) {
+                element = converterLookup == null
+                    ? context.convertAnother(collection, elementType)
+                    : context.convertAnother(collection, elementType, elementConverter());
+            } else {
+                element = context.convertAnother(collection, HierarchicalStreams.readClassType(reader, mapper));
+            }
+            collection.add(element);
+            reader.moveUp();
+        }
+        return unmodifiable ? unmodifiable(collection) : collection;
+    }
+
+    private Converter elementConverter() {
+        Converter converter = elementConverter;
+        if (converter == null) {
+            converter = converterLookup.lookupConverterForType(mapper.defaultImplementationOf(elementType));
+            elementConverter = converter;
+        }
+        return converter;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<Object> newCollection() {
+        try {
+            return (Collection<Object>) (presized ? constructor.newInstance(capacity) : constructor.newInstance());
+        } catch (InstantiationException e) {
+            throw new XStreamException("Could not instantiate " + collectionType.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new XStreamException("Could not instantiate " + collectionType.getName(), e);
+        } catch (InvocationTargetException e) {
+            throw new XStreamException("Could not instantiate " + collectionType.getName(), e.getTargetException());
+        }
+    }
+
+    private Collection<Object> unmodifiable(Collection<Object> collection) {
+        if (SortedSet.class.isAssignableFrom(declaredType)) {
+            return Collections.unmodifiableSortedSet((SortedSet<Object>) collection);
+        }
+        if (Set.class.isAssignableFrom(declaredType)) {
+            return Collections.unmodifiableSet((Set<Object>) collection);
+        }
+        if (List.class.isAssignableFrom(declaredType)) {
+            return Collections.unmodifiableList((List<Object>) collection);
+        }
+        return Collections.unmodifiableCollection(collection);
+    }
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Immutable description of how the xml nodes are mapped to the constructor slots.</p>
+ * <p>The plan is compiled once by the builder, so resolving the slot of a node does not
+ * depend on the number of constructor parameters, and is shared through {@link ConstructorMetadataCache}
+ * by every converter built for the same type and configuration.</p>
+ * <p>The names are interned, so the names of parsers that intern their own, like the StAX parser of the
+ * JDK, are matched by identity before the lookup in small plans.</p>
+ *
+ * @author Leonardo Wolter
+ */
+final class UnmarshalPlan {
+
+    static final int UNMAPPED = -1;
+    private static final int IDENTITY_SCAN_LIMIT = 8;
+
+    private final String[] names;
+    private final Class<?>[] parameterTypes;
+    private final Map<String, Integer> slots;
+    private final boolean[] firstOccurrences;
+    private final int identityScanLength;
+    private final Instantiator instantiator;
+    private final PropertyAccessor[] accessors;
+    private final SimpleValueParser[] parsers;
+    private final Class<?>[] elementTypes;
+    private final boolean[] lazySlots;
+
+    UnmarshalPlan(String[] names, Class<?>[] parameterTypes, Instantiator instantiator) {
+        this.names = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            this.names[i] = names[i].intern();
+        }
+        this.parameterTypes = parameterTypes.clone();
+        this.instantiator = instantiator;
+        this.accessors = null;
+        this.parsers = null;
+        this.elementTypes = null;
+        this.lazySlots = null;
+        this.slots = new HashMap<String, Integer>(names.length * 2);
+        this.firstOccurrences = new boolean[names.length];
+        this.identityScanLength = Math.min(names.length, IDENTITY_SCAN_LIMIT);
+        for (int i = 0; i < names.length; i++) {
+            if (!slots.containsKey(names[i])) {
+                slots.put(names[i], i);
+                firstOccurrences[i] = true;
+            }
+        }
+    }
+
+    private UnmarshalPlan(UnmarshalPlan plan, PropertyAccessor[] accessors, SimpleValueParser[] parsers,
+            Class<?>[] elementTypes, boolean[] lazySlots) {
+        this.names = plan.names;
+        this.identityScanLength = plan.identityScanLength;
+        this.parameterTypes = plan.parameterTypes;
+        this.instantiator = plan.instantiator;
+        this.slots = plan.slots;
+        this.firstOccurrences = plan.firstOccurrences;
+        this.accessors = accessors;
+        this.parsers = parsers;
+        this.elementTypes = elementTypes;
+        this.lazySlots = lazySlots;
+    }
+
+    /**
+     * Resolves the accessors used to marshal each slot back to its xml node
+     *
+     * @param type the type declaring the properties
+     * @return a copy of this plan able to marshal
+     */
+    UnmarshalPlan withAccessorsOf(Class<?> type) {
+        PropertyAccessor[] accessors = new PropertyAccessor[names.length];
+        for (int i = 0; i < names.length; i++) {
+            if (slotOf(names[i]) == i) {
+                accessors[i] = PropertyAccessor.forProperty(type, names[i]);
+                if (accessors[i] == null) {
+                    throw new IllegalArgumentException("Could not find a field or getter for the xml field " + names[i] + " of " + type.getName());
+                }
+            }
+        }
+        return new UnmarshalPlan(this, accessors, parsers, elementTypes, lazySlots);
+    }
+
+    /**
+     * Binds a {@link SimpleValueParser} to each slot of a primitive, wrapper, String or enum type
+     *
+     * @return a copy of this plan which reads those slots straight from the xml text
+     */
+    UnmarshalPlan withSimpleValueParsers() {
+        SimpleValueParser[] parsers = new SimpleValueParser[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parsers[i] = SimpleValueParser.forType(parameterTypes[i]);
+        }
+        return new UnmarshalPlan(this, accessors, parsers, elementTypes, lazySlots);
+    }
+
+    /**
+     * Marks the slots whose values are captured and only built when first used
+     *
+     * @param lazyNames the names of the lazy xml nodes
+     * @return a copy of this plan with the lazy slots
+     */
+    UnmarshalPlan withLazySlots(Collection<String> lazyNames) {
+        boolean[] lazySlots = new boolean[names.length];
+        for (String name : lazyNames) {
+            int slot = slotOf(name);
+            if (slot == UNMAPPED) {
+                throw new IllegalArgumentException("The lazy xml field " + name + " is not a constructor parameter");
+            }
+            if (!parameterTypes[slot].isInterface()) {
+                throw new IllegalArgumentException("The lazy xml field " + name + " should be mapped to an interface");
+            }
+            lazySlots[slot] = true;
+        }
+        return new UnmarshalPlan(this, accessors, parsers, elementTypes, lazySlots);
+    }
+
+    boolean isLazy(int slot) {
+        return lazySlots != null && lazySlots[slot];
+    }
+
+    boolean hasLazySlots() {
+        return lazySlots != null;
+    }
+
+    /**
+     * Keeps the element type of each collection slot declared with a type argument
+     *
+     * @param genericParameterTypes the generic parameter types of the constructor
+     * @return a copy of this plan which knows the element types
+     */
+    UnmarshalPlan withElementTypesOf(Type[] genericParameterTypes) {
+        Class<?>[] elementTypes = new Class<?>[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length && i < genericParameterTypes.length; i++) {
+            elementTypes[i] = TypedCollectionConverter.elementTypeOf(genericParameterTypes[i]);
+        }
+        return new UnmarshalPlan(this, accessors, parsers, elementTypes, lazySlots);
+    }
+
+    /**
+     * @return the element type of a collection slot, or null if it is unknown or the slot is not a collection
+     */
+    Class<?> elementTypeAt(int slot) {
+        return elementTypes == null ? null : elementTypes[slot];
+    }
+
+    /**
+     * @return the parser bound to the slot, or null if its value must be converted by XStream
+     */
+    SimpleValueParser parserAt(int slot) {
+        return parsers == null ? null : parsers[slot];
+    }
+
+    boolean isMarshallable() {
+        return accessors != null;
+    }
+
+    /**
+     * @return the value of the slot read from the source, or null if the slot repeats a name
+     */
+    Object valueAt(int slot, Object source) {
+        PropertyAccessor accessor = accessors[slot];
+        return accessor == null ? null : accessor.valueOf(source);
+    }
+
+    /**
+     * @param nodeName the name of the xml node
+     * @return the constructor slot of the node or {@link #UNMAPPED}
+     */
+    int slotOf(String nodeName) {
+        for (int i = 0; i < identityScanLength; i++) {
+            if (names[i] == nodeName) {
+                return firstOccurrences[i] ? i : slots.get(nodeName).intValue();
+            }
+        }
+        Integer slot = slots.get(nodeName);
+        return slot == null ? UNMAPPED : slot.intValue();
+    }
+
+    /**
+     * Checks whether the node belongs to the given slot without looking it up
+     *
+     * @param nodeName the name of the xml node
+     * @param slot the expected slot, which may be past the last one
+     * @return true if {@link #slotOf(String)} would return the slot
+     */
+    boolean isSlotOf(String nodeName, int slot) {
+        if (slot >= names.length || !firstOccurrences[slot]) {
+            return false;
+        }
+        String name = names[slot];
+        return name == nodeName || name.equals(nodeName);
+    }
+
+    Class<?> parameterTypeAt(int slot) {
+        return parameterTypes[slot];
+    }
+
+    String nameAt(int slot) {
+        return names[slot];
+    }
+
+    Instantiator instantiator() {
+        return instantiator;
+    }
+
+    Object newInstance(Object[] arguments) {
+        return instantiator.newInstance(arguments);
+    }
+
+    int size() {
+        return names.length;
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>The outcome of a {@link ConstructorConverterWarmUp}, with one result for each type of the registry.</p>
+ *
+ * @author Leonardo Wolter
+ */
+public class WarmUpReport {
+
+    /**
+     * The state of a type once warmed up
+     */
+    public enum Status {
+        /** The converter was built and linked, and round tripped if requested */
+        READY,
+        /** The converter was built and linked, but could not be round tripped */
+        NOT_ROUND_TRIPPED,
+        /** The converter could not be built or linked, or its round trip changed the xml */
+        INCONSISTENT,
+        /** The time budget ran out before the type was warmed up */
+        TIMED_OUT
+    }
+
+    /**
+     * The result of one type
+     */
+    public static class Result {
+
+        private final Class<?> type;
+        private final Status status;
+        private final String message;
+        private final Throwable cause;
+        private final int roundTrips;
+
+        Result(Class<?> type, Status status, String message, Throwable cause, int roundTrips) {
+            this.type = type;
+            this.status = status;
+            this.message = message;
+            this.cause = cause;
+            this.roundTrips = roundTrips;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return why the type is not ready, or null
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return the exception behind the status, or null
+         */
+        public Throwable getCause() {
+            return cause;
+        }
+
+        /**
+         * @return how many round trips were run
+         */
+        public int getRoundTrips() {
+            return roundTrips;
+        }
+
+        @Override
+        public String toString() {
+            return type.getName() + ": " + status + (message == null ? "" : " (" + message + ")");
+        }
+    }
+
+    private final List<Result> results;
+    private final long elapsedNanos;
+
+    WarmUpReport(List<Result> results, long elapsedNanos) {
+        this.results = Collections.unmodifiableList(results);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the result of each type
+     */
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * @param status the status
+     * @return the results with the given status
+     */
+    public List<Result> getResults(Status status) {
+        List<Result> selected = new ArrayList<Result>();
+        for (Result result : results) {
+            if (result.getStatus() == status) {
+                selected.add(result);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @return true if no type is inconsistent
+     */
+    public boolean isConsistent() {
+        return getResults(Status.INCONSISTENT).isEmpty();
+    }
+
+    /**
+     * @return how long the warm up took
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (Result result : results) {
+            report.append(result).append('\n');
+        }
+        return report.toString();
+    }
+
+}
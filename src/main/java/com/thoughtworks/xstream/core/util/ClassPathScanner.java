@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import com.thoughtworks.xstream.XStreamException;
+
+/**
+ * <p>Finds the classes of packages, and of their sub packages, available in directories or jars of a class loader.</p>
+ *
+ * @author Leonardo Wolter
+ */
+public class ClassPathScanner {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final ClassLoader classLoader;
+
+    public ClassPathScanner(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Loads, without initializing, every class found in the packages
+     *
+     * @param packageNames the names of the packages
+     * @return the classes found
+     */
+    public List<Class<?>> classesOf(String... packageNames) {
+        Set<String> classNames = new LinkedHashSet<String>();
+        for (String packageName : packageNames) {
+            String path = packageName.replace('.', '/');
+            try {
+                Enumeration<URL> resources = classLoader.getResources(path);
+                while (resources.hasMoreElements()) {
+                    URL resource = resources.nextElement();
+                    if ("file".equals(resource.getProtocol())) {
+                        scanDirectory(new File(decode(resource.getPath())), packageName, classNames);
+                    } else {
+                        URLConnection connection = resource.openConnection();
+                        if (connection instanceof JarURLConnection) {
+                            scanJar(((JarURLConnection) connection).getJarFile(), path + "/", classNames);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new XStreamException("Could not scan package " + packageName, e);
+            }
+        }
+        List<Class<?>> classes = new ArrayList<Class<?>>(classNames.size());
+        for (String className : classNames) {
+            try {
+                classes.add(Class.forName(className, false, classLoader));
+            } catch (ClassNotFoundException e) {
+                throw new XStreamException("Could not load scanned class " + className, e);
+            } catch (LinkageError e) {
+                // classes whose dependencies are missing cannot be converted either
+            }
+        }
+        return classes;
+    }
+
+    private void scanDirectory(File directory, String packageName, Set<String> classNames) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                scanDirectory(file, packageName + "." + name, classNames);
+            } else if (name.endsWith(CLASS_SUFFIX)) {
+                classNames.add(packageName + "." + name.substring(0, name.length() - CLASS_SUFFIX.length()));
+            }
+        }
+    }
+
+    private void scanJar(JarFile jar, String prefix, Set<String> classNames) {
+        Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            String name = entries.nextElement().getName();
+            if (name.startsWith(prefix) && name.endsWith(CLASS_SUFFIX)) {
+                classNames.add(name.substring(0, name.length() - CLASS_SUFFIX.length()).replace('/', '.'));
+            }
+        }
+    }
+
+    private String decode(String path) {
+        try {
+            return URLDecoder.decode(path, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new XStreamException(e);
+        }
+    }
+
+}
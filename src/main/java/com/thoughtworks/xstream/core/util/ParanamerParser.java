@@ -10,26 +10,165 @@
  */
 package com.thoughtworks.xstream.core.util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.thoughtworks.paranamer.AdaptiveParanamer;
-import com.thoughtworks.paranamer.CachingParanamer;
 import com.thoughtworks.paranamer.Paranamer;
 
 
 /**
  * <p> ParanamerParser is an adapter for using Paranamer library optionally</p>
+ * <p>The names are looked up, in order, in the index generated at compile time by
+ * {@link com.thoughtworks.xstream.annotation.XStreamUnmarshallingProcessor} under {@link #INDEX_LOCATION},
+ * in the metadata of classes compiled with <code>-parameters</code> and finally by Paranamer.
+ * The result is kept in a process wide cache which does not prevent the classes from being unloaded.</p>
  *
  * @author Leonardo Wolter
  * @author Francisco Sokol
  * @author Guilherme Silveira
  */
 public class ParanamerParser {
-    
+
+    /**
+     * Classpath folder of the parameter names index, which holds one properties file per type,
+     * named after its binary name, mapping the canonical parameter types of each constructor,
+     * separated by commas, to its parameter names, separated by commas.
+     */
+    public static final String INDEX_LOCATION = "META-INF/xstream/parameter-names/";
+
+    private static final ClassValue<ConcurrentMap<String, String[]>> NAMES = new ClassValue<ConcurrentMap<String, String[]>>() {
+        @Override
+        protected ConcurrentMap<String, String[]> computeValue(Class<?> type) {
+            ConcurrentMap<String, String[]> names = new ConcurrentHashMap<String, String[]>();
+            for (Map.Entry<Object, Object> entry : indexOf(type).entrySet()) {
+                String value = (String) entry.getValue();
+                names.put((String) entry.getKey(), value.length() == 0 ? new String[0] : value.split(","));
+            }
+            return names;
+        }
+    };
+
+    private static final Method GET_PARAMETERS;
+    private static final Method IS_NAME_PRESENT;
+    private static final Method GET_NAME;
+
+    static {
+        Method getParameters = null;
+        Method isNamePresent = null;
+        Method getName = null;
+        try {
+            Class<?> parameterClass = Class.forName("java.lang.reflect.Parameter");
+            getParameters = Constructor.class.getMethod("getParameters");
+            isNamePresent = parameterClass.getMethod("isNamePresent");
+            getName = parameterClass.getMethod("getName");
+        } catch (ClassNotFoundException e) {
+            // JDK without parameter metadata
+        } catch (NoSuchMethodException e) {
+            // JDK without parameter metadata
+        }
+        GET_PARAMETERS = getParameters;
+        IS_NAME_PRESENT = isNamePresent;
+        GET_NAME = getName;
+    }
+
     @SuppressWarnings("rawtypes")
 	public String[] paramsFor(Constructor c) {
-        Paranamer paranamer = new CachingParanamer(new AdaptiveParanamer());
-        return paranamer.lookupParameterNames(c, true);
+        ConcurrentMap<String, String[]> cache = NAMES.get(c.getDeclaringClass());
+        String key = keyOf(c);
+        String[] names = cache.get(key);
+        if (names == null) {
+            names = parameterNamesOf(c);
+            if (names == null) {
+                names = ParanamerHolder.PARANAMER.lookupParameterNames(c, true);
+            }
+            cache.putIfAbsent(key, names);
+        }
+        return names.clone();
+    }
+
+    /**
+     * Discards the names cached for the constructors of a type, so they are read again
+     *
+     * @param type the type
+     */
+    public static void evict(Class<?> type) {
+        NAMES.remove(type);
+    }
+
+    /**
+     * @param parameterTypes the parameter types of a constructor
+     * @return the key of the constructor in the index
+     */
+    public static String keyOf(Class<?>[] parameterTypes) {
+        StringBuilder key = new StringBuilder();
+        for (Class<?> parameterType : parameterTypes) {
+            if (key.length() > 0) {
+                key.append(',');
+            }
+            String name = parameterType.getCanonicalName();
+            key.append(name == null ? parameterType.getName() : name);
+        }
+        return key.toString();
+    }
+
+    private static String keyOf(Constructor<?> c) {
+        return keyOf(c.getParameterTypes());
+    }
+
+    private static Properties indexOf(Class<?> type) {
+        Properties index = new Properties();
+        ClassLoader classLoader = type.getClassLoader();
+        if (classLoader == null) {
+            return index;
+        }
+        InputStream input = classLoader.getResourceAsStream(INDEX_LOCATION + type.getName() + ".properties");
+        if (input != null) {
+            try {
+                try {
+                    index.load(input);
+                } finally {
+                    input.close();
+                }
+            } catch (IOException e) {
+                index.clear();
+            }
+        }
+        return index;
+    }
+
+    private static String[] parameterNamesOf(Constructor<?> c) {
+        if (GET_PARAMETERS == null) {
+            return null;
+        }
+        try {
+            Object parameters = GET_PARAMETERS.invoke(c);
+            String[] names = new String[Array.getLength(parameters)];
+            for (int i = 0; i < names.length; i++) {
+                Object parameter = Array.get(parameters, i);
+                if (!((Boolean) IS_NAME_PRESENT.invoke(parameter)).booleanValue()) {
+                    return null;
+                }
+                names[i] = (String) GET_NAME.invoke(parameter);
+            }
+            return names;
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    private static class ParanamerHolder {
+        private static final Paranamer PARANAMER = new AdaptiveParanamer();
     }
 
 }
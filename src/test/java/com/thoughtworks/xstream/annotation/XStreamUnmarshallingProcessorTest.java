@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.annotation;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.XStreamException;
+import com.thoughtworks.xstream.converters.reflection.ConstructorConverter;
+import com.thoughtworks.xstream.converters.reflection.ConstructorMapping;
+import com.thoughtworks.xstream.converters.reflection.InstantiationStrategy;
+import com.thoughtworks.xstream.converters.reflection.Instantiator;
+import com.thoughtworks.xstream.converters.reflection.ReflectionInstantiationStrategy;
+import com.thoughtworks.xstream.core.util.ParanamerParser;
+
+public class XStreamUnmarshallingProcessorTest {
+
+    private XStream xStream;
+
+    public static class Item {
+        private final String name;
+        private final int quantity;
+
+        @XStreamUnmarshalling({"item-name", "qty"})
+        Item(String name, int quantity) {
+            this.name = name;
+            this.quantity = quantity;
+        }
+    }
+
+    public static class SourceNamedItem {
+        private final String description;
+
+        @XStreamUnmarshalling
+        protected SourceNamedItem(String description) {
+            this.description = description;
+        }
+    }
+
+    public static class Order {
+        private final String id;
+        private final List<String> lines;
+
+        @XStreamUnmarshalling(value = {"id", "lines"}, lazy = "lines")
+        Order(String id, List<String> lines) {
+            this.id = id;
+            this.lines = lines;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class IndexedClass {
+        @XStreamUnmarshalling
+        private IndexedClass(int quantity, List<String> productNames, String[] tags) {
+        }
+    }
+
+    public static class Holder {
+        private static class Secret {
+            private final String code;
+
+            private Secret(String code) {
+                this.code = code;
+            }
+        }
+
+        public static class Box {
+            private final Secret secret;
+
+            @XStreamUnmarshalling({"secret"})
+            public Box(Secret secret) {
+                this.secret = secret;
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        xStream = new XStream();
+        xStream.alias("item", Item.class);
+        xStream.alias("source-named-item", SourceNamedItem.class);
+    }
+
+    @Test
+    public void testShouldGenerateConverterForAnnotatedConstructor() {
+        xStream.registerConverter(new XStreamUnmarshallingProcessorTest_Item_XStreamConverter());
+        Item item = (Item) xStream.fromXML("<item><qty>3</qty><unknown/><item-name>pen</item-name></item>");
+        assertEquals("pen", item.name);
+        assertEquals(3, item.quantity);
+    }
+
+    @Test
+    public void testShouldGenerateMappingWithoutReflection() {
+        ConstructorMapping mapping = new XStreamUnmarshallingProcessorTest_Item_XStreamConverter();
+        assertEquals(1, mapping.slotOf("qty"));
+        assertEquals(-1, mapping.slotOf("unknown"));
+        Item item = (Item) mapping.newInstance(new Object[] {"pen", 2});
+        assertEquals(2, item.quantity);
+    }
+
+    @Test
+    public void testShouldUseSourceParameterNamesWhenAnnotationHasNoNames() {
+        ConstructorMapping mapping = new XStreamUnmarshallingProcessorTest_SourceNamedItem_XStreamConverter();
+        assertEquals("description", mapping.getNames()[0]);
+    }
+
+    @Test
+    public void testShouldBeUsedByConstructorConverter() {
+        ConstructorConverter converter = ConstructorConverter.forType(SourceNamedItem.class).build();
+        xStream.registerConverter(converter);
+        SourceNamedItem item = (SourceNamedItem) xStream.fromXML(
+            "<source-named-item><description>generated</description></source-named-item>");
+        assertEquals("generated", item.description);
+        assertTrue(converter.canConvert(SourceNamedItem.class));
+    }
+
+    @Test
+    public void testShouldIndexParameterNamesForParanamerParser() throws Exception {
+        Properties index = new Properties();
+        index.load(getClass().getClassLoader().getResourceAsStream(
+            ParanamerParser.INDEX_LOCATION + IndexedClass.class.getName() + ".properties"));
+        Constructor<?> c = IndexedClass.class.getDeclaredConstructor(int.class, List.class, String[].class);
+        assertNotNull(index.getProperty(ParanamerParser.keyOf(c.getParameterTypes())));
+
+        String[] paramsFor = new ParanamerParser().paramsFor(c);
+        assertEquals("quantity", paramsFor[0]);
+        assertEquals("productNames", paramsFor[1]);
+        assertEquals("tags", paramsFor[2]);
+    }
+
+    @Test
+    public void testShouldRecordLazyNodesInMapping() {
+        ConstructorMapping mapping = new XStreamUnmarshallingProcessorTest_Order_XStreamConverter();
+        assertEquals(1, mapping.getLazyNames().length);
+        assertEquals("lines", mapping.getLazyNames()[0]);
+    }
+
+    @Test
+    public void testShouldHonorGivenInstantiationStrategyOverGeneratedMapping() {
+        final List<Constructor<?>> unreflected = new ArrayList<Constructor<?>>();
+        ConstructorConverter converter = ConstructorConverter.forType(SourceNamedItem.class)
+            .withInstantiationStrategy(new InstantiationStrategy() {
+                public Instantiator instantiatorFor(Constructor<?> constructor) {
+                    unreflected.add(constructor);
+                    return new ReflectionInstantiationStrategy().instantiatorFor(constructor);
+                }
+            })
+            .build();
+        xStream.registerConverter(converter);
+        SourceNamedItem item = (SourceNamedItem) xStream.fromXML(
+            "<source-named-item><description>reflective</description></source-named-item>");
+        assertEquals("reflective", item.description);
+        assertEquals(1, unreflected.size());
+    }
+
+    @Test
+    public void testShouldReportMissingPrimitiveAsXStreamException() {
+        xStream.registerConverter(new XStreamUnmarshallingProcessorTest_Item_XStreamConverter());
+        try {
+            xStream.fromXML("<item><item-name>pen</item-name></item>");
+            fail();
+        } catch (XStreamException e) {
+            assertTrue(e.getMessage().indexOf("qty") >= 0);
+        }
+    }
+
+    @Test(expected = XStreamException.class)
+    public void testShouldNotUnboxMissingPrimitiveOfMapping() {
+        new XStreamUnmarshallingProcessorTest_Item_XStreamConverter().newInstance(new Object[] {"pen", null});
+    }
+
+    @Test
+    public void testShouldSkipTypesWithInaccessibleParameterTypes() {
+        try {
+            Class.forName(getClass().getName() + "_Holder_Box" + ConstructorMapping.GENERATED_SUFFIX);
+            fail();
+        } catch (ClassNotFoundException expected) {
+        }
+        xStream.alias("box", Holder.Box.class);
+        xStream.alias("secret", Holder.Secret.class);
+        xStream.registerConverter(ConstructorConverter.forType(Holder.Secret.class)
+            .withConstructor(String.class)
+            .withAliases("code")
+            .build());
+        xStream.registerConverter(ConstructorConverter.forType(Holder.Box.class).build());
+        Holder.Box box = (Holder.Box) xStream.fromXML("<box><secret><code>42</code></secret></box>");
+        assertEquals("42", box.secret.code);
+    }
+}
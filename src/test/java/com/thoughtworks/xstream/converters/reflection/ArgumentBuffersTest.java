@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+import java.lang.reflect.Field;
+
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+
+public class ArgumentBuffersTest {
+
+    public static class Category {
+        private final String name;
+        private final Category parent;
+
+        protected Category(String name, Category parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+    }
+
+    @Test
+    public void testShouldReuseClearedBuffers() {
+        ArgumentBuffers buffers = new ArgumentBuffers(2);
+        ArgumentBuffers.State state = buffers.state();
+        Object[] buffer = state.acquire();
+        buffer[0] = "value";
+        buffers.release(state, buffer);
+
+        assertSame(buffer, state.acquire());
+        assertNull(buffer[0]);
+    }
+
+    @Test
+    public void testShouldNotShareBuffersOfNestedCalls() {
+        ArgumentBuffers.State state = new ArgumentBuffers(2).state();
+        Object[] outer = state.acquire();
+        Object[] first = state.acquire();
+        Object[] second = state.acquire();
+
+        assertNotSame(outer, first);
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void testShouldReadRecursiveTypesAndCountSequentialNodes() {
+        XStream xstream = new XStream();
+        xstream.alias("category", Category.class);
+        ConstructorConverter converter = ConstructorConverter.forType(Category.class)
+            .withConstructor(String.class, Category.class)
+            .withAliases("name", "parent")
+            .withSequentialReading()
+            .build();
+        xstream.registerConverter(converter);
+
+        Category category = (Category) xstream.fromXML("<category><name>phones</name>"
+                + "<parent><name>electronics</name></parent></category>");
+        Category reordered = (Category) xstream.fromXML("<category><parent><name>books</name></parent><name>novels</name></category>");
+
+        assertEquals("phones", category.name);
+        assertEquals("electronics", category.parent.name);
+        assertNull(category.parent.parent);
+        assertEquals("novels", reordered.name);
+        assertEquals("books", reordered.parent.name);
+        assertEquals(4, converter.getSequentialHits());
+        assertEquals(2, converter.getSequentialMisses());
+    }
+
+    @Test
+    public void testShouldAddCountsOfThreadOnceItsOutermostCallEnds() {
+        ArgumentBuffers buffers = new ArgumentBuffers(2);
+        ArgumentBuffers.State state = buffers.state();
+        Object[] outer = state.acquire();
+        Object[] nested = state.acquire();
+        state.hits += 2;
+        state.misses++;
+        buffers.release(state, nested);
+        assertEquals(0, buffers.getHits());
+
+        buffers.release(state, outer);
+        assertEquals(2, buffers.getHits());
+        assertEquals(1, buffers.getMisses());
+    }
+
+    @Test
+    public void testShouldNotReferenceOwnerFromThreadState() {
+        for (Field field : ArgumentBuffers.State.class.getDeclaredFields()) {
+            assertFalse(field.getName(), ArgumentBuffers.class.isAssignableFrom(field.getType()));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+import com.thoughtworks.xstream.converters.ConversionException;
+
+public class BatchUnmarshallerTest {
+
+    private static final int DOCUMENTS = 2000;
+
+    private XStream xStream;
+    private ExecutorService executor;
+
+    public static class Measure {
+        private final String sensor;
+        private final long value;
+
+        @XStreamUnmarshalling({"sensor", "value"})
+        protected Measure(String sensor, long value) {
+            this.sensor = sensor;
+            this.value = value;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        xStream = new XStream();
+        xStream.alias("measure", Measure.class);
+        ConstructorConverterRegistry.forTypes(Measure.class).lazy().build().registerTo(xStream);
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private List<String> documents() {
+        List<String> documents = new ArrayList<String>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            documents.add("<measure><value>" + i + "</value><sensor>s" + i + "</sensor></measure>");
+        }
+        return documents;
+    }
+
+    @Test
+    public void testShouldDeliverResultsInInputOrder() {
+        List<Measure> measures = new BatchUnmarshaller<Measure>(xStream, Measure.class, executor).unmarshalAll(documents());
+        assertEquals(DOCUMENTS, measures.size());
+        for (int i = 0; i < DOCUMENTS; i++) {
+            assertEquals(i, measures.get(i).value);
+            assertEquals("s" + i, measures.get(i).sensor);
+        }
+    }
+
+    @Test
+    public void testShouldDeliverEveryResultInCompletionOrder() {
+        final BitSet delivered = new BitSet(DOCUMENTS);
+        new BatchUnmarshaller<Measure>(xStream, Measure.class, executor).unmarshalAll(documents(),
+            new BatchUnmarshaller.ResultHandler<Measure>() {
+                public void handle(int index, Measure result) {
+                    assertEquals(index, result.value);
+                    delivered.set(index);
+                }
+            });
+        assertEquals(DOCUMENTS, delivered.cardinality());
+    }
+
+    @Test(expected = ConversionException.class)
+    public void testShouldRethrowFirstFailure() {
+        List<String> documents = documents();
+        documents.set(DOCUMENTS / 2, "<measure><value>not a number</value></measure>");
+        new BatchUnmarshaller<Measure>(xStream, Measure.class, executor).unmarshalAll(documents);
+    }
+
+    @Test
+    public void testShouldShareConverterBetweenThreadsStartingTogether() throws Exception {
+        final ConstructorConverter converter = ConstructorConverter.forType(Measure.class).build();
+        final XStream shared = new XStream();
+        shared.alias("measure", Measure.class);
+        shared.registerConverter(converter);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            final int thread = t;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 500; i++) {
+                            Measure measure = (Measure) shared.fromXML(
+                                "<measure><sensor>t" + thread + "</sensor><value>" + i + "</value></measure>");
+                            if (measure.value != i || !measure.sensor.equals("t" + thread)) {
+                                throw new AssertionError("mixed up measure " + measure.sensor + " " + measure.value);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (!failures.isEmpty()) {
+            fail(failures.get(0).toString());
+        }
+    }
+}
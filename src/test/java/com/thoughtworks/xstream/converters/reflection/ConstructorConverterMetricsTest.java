@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+
+public class ConstructorConverterMetricsTest {
+
+    public static class Payment {
+        private final String method;
+        private final int amount;
+
+        protected Payment(String method, int amount) {
+            if (amount < 0) {
+                throw new IllegalArgumentException("negative amount");
+            }
+            this.method = method;
+            this.amount = amount;
+        }
+    }
+
+    private XStream xstreamWith(ConstructorConverterListener listener) {
+        XStream xstream = new XStream();
+        xstream.alias("payment", Payment.class);
+        xstream.registerConverter(ConstructorConverter.forType(Payment.class)
+            .withConstructor(String.class, int.class)
+            .withAliases("method", "amount")
+            .withListener(listener)
+            .build());
+        return xstream;
+    }
+
+    @Test
+    public void testShouldCountNodesAndUnmarshals() {
+        ConstructorConverterMetrics metrics = new ConstructorConverterMetrics();
+        XStream xstream = xstreamWith(metrics);
+
+        Payment payment = (Payment) xstream.fromXML("<payment><method>card</method><note>ignored</note><amount>10</amount></payment>");
+        xstream.fromXML("<payment><amount>5</amount></payment>");
+
+        ConstructorConverterMXBean paymentMetrics = metrics.metricsOf(Payment.class);
+        assertEquals("card", payment.method);
+        assertEquals(10, payment.amount);
+        assertEquals(2, paymentMetrics.getUnmarshalCount());
+        assertEquals(3, paymentMetrics.getNodesRead());
+        assertEquals(1, paymentMetrics.getNodesIgnored());
+        assertTrue(paymentMetrics.getTotalNanos() >= paymentMetrics.getNestedNanos());
+        long histogramCount = 0;
+        for (long bucket : paymentMetrics.getLatencyHistogram()) {
+            histogramCount += bucket;
+        }
+        assertEquals(2, histogramCount);
+    }
+
+    @Test
+    public void testShouldCountFailuresByRootCause() {
+        ConstructorConverterMetrics metrics = new ConstructorConverterMetrics();
+        XStream xstream = xstreamWith(metrics);
+
+        try {
+            xstream.fromXML("<payment><amount>-1</amount></payment>");
+            fail();
+        } catch (RuntimeException expected) {
+        }
+
+        ConstructorConverterMXBean paymentMetrics = metrics.metricsOf(Payment.class);
+        assertEquals(0, paymentMetrics.getUnmarshalCount());
+        assertEquals(Long.valueOf(1), paymentMetrics.getFailures().get(IllegalArgumentException.class.getName()));
+    }
+
+    @Test
+    public void testShouldExposeMetricsThroughJmx() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ConstructorConverterMetrics metrics = new ConstructorConverterMetrics(server, ConstructorConverterMetrics.DEFAULT_DOMAIN);
+        ObjectName name = metrics.objectNameOf(Payment.class.getName());
+        try {
+            xstreamWith(metrics).fromXML("<payment><amount>7</amount></payment>");
+
+            assertEquals(Long.valueOf(1), server.getAttribute(name, "UnmarshalCount"));
+            assertEquals(Long.valueOf(1), server.getAttribute(name, "NodesRead"));
+        } finally {
+            metrics.unregister();
+        }
+        assertTrue(!server.isRegistered(name));
+    }
+
+    @Test
+    public void testShouldBucketLatenciesByPowersOfTwoMicroseconds() {
+        assertEquals(0, ConstructorConverterMetrics.bucketOf(999));
+        assertEquals(1, ConstructorConverterMetrics.bucketOf(1000));
+        assertEquals(2, ConstructorConverterMetrics.bucketOf(3999));
+        assertEquals(ConstructorConverterMetrics.LATENCY_BUCKETS - 1, ConstructorConverterMetrics.bucketOf(Long.MAX_VALUE));
+    }
+}
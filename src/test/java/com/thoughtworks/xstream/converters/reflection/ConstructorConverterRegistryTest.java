@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+import com.thoughtworks.xstream.converters.reflection.scan.ScannedAddress;
+import com.thoughtworks.xstream.converters.reflection.scan.ScannedCustomer;
+
+public class ConstructorConverterRegistryTest {
+
+    private static final String CUSTOMER_XML = "<customer>" +
+            "<customer-name>Leonardo</customer-name>" +
+            "<address><street>Vergueiro</street></address>" +
+        "</customer>";
+
+    private XStream xStream;
+
+    public static class Tag {
+        private final String label;
+
+        @XStreamUnmarshalling({"label"})
+        protected Tag(String label) {
+            this.label = label;
+        }
+    }
+
+    public static class Money {
+        private final String currency;
+        private final int amount;
+
+        @XStreamUnmarshalling({"cur", "amt"})
+        protected Money(String currency, int amount) {
+            this.currency = currency;
+            this.amount = amount;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        xStream = new XStream();
+        xStream.alias("customer", ScannedCustomer.class);
+        xStream.alias("tag", Tag.class);
+    }
+
+    @Test
+    public void testShouldRegisterConvertersOfAnnotatedTypesInPackage() {
+        ConstructorConverterRegistry registry = ConstructorConverterRegistry
+            .forPackages("com.thoughtworks.xstream.converters.reflection.scan")
+            .withParanamer()
+            .build();
+        assertEquals(2, registry.getTypes().size());
+        assertTrue(registry.getTypes().contains(ScannedAddress.class));
+
+        registry.registerTo(xStream);
+        ScannedCustomer customer = (ScannedCustomer) xStream.fromXML(CUSTOMER_XML);
+        assertEquals("Leonardo", customer.getName());
+        assertEquals("Vergueiro", customer.getAddress().getStreet());
+    }
+
+    @Test
+    public void testShouldRegisterConvertersOfGivenTypes() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ConstructorConverterRegistry.forTypes(Tag.class).withPool(pool).build().registerTo(xStream);
+        } finally {
+            pool.shutdown();
+        }
+        Tag tag = (Tag) xStream.fromXML("<tag><label>immutable</label></tag>");
+        assertEquals("immutable", tag.label);
+    }
+
+    @Test
+    public void testShouldBuildConvertersOnDemandWhenLazy() {
+        ConstructorConverterRegistry registry = ConstructorConverterRegistry
+            .forPackages("com.thoughtworks.xstream.converters.reflection.scan")
+            .withParanamer()
+            .lazy()
+            .build();
+        registry.registerTo(xStream);
+        ScannedCustomer customer = (ScannedCustomer) xStream.fromXML(CUSTOMER_XML);
+        assertEquals("Vergueiro", customer.getAddress().getStreet());
+        assertTrue(registry.converterFor(ScannedCustomer.class).canConvert(ScannedCustomer.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldNotBuildConverterForUnknownType() {
+        ConstructorConverterRegistry.forTypes(Tag.class).lazy().build().converterFor(String.class);
+    }
+
+    @Test
+    public void testShouldPreferAnnotationNamesOfGivenTypesOverParanamer() {
+        xStream.alias("money", Money.class);
+        ConstructorConverterRegistry.forTypes(Money.class).withParanamer().build().registerTo(xStream);
+        Money money = (Money) xStream.fromXML("<money><cur>BRL</cur><amt>5</amt></money>");
+        assertEquals("BRL", money.currency);
+        assertEquals(5, money.amount);
+    }
+}
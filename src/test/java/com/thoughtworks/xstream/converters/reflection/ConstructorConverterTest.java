@@ -13,9 +13,16 @@ package com.thoughtworks.xstream.converters.reflection;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
 import static junit.framework.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.LinkedList;
 import java.util.List;
 
 import org.junit.Before;
@@ -23,7 +30,9 @@ import org.junit.Test;
 
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+import com.thoughtworks.xstream.converters.ConversionException;
 import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.ConverterLookup;
 
 public class ConstructorConverterTest{
 
@@ -104,6 +113,31 @@ public class ConstructorConverterTest{
         }
     }
     
+    public static class Team {
+        private final User leader;
+        private final User member;
+
+        protected Team(User leader, User member) {
+            this.leader = leader;
+            this.member = member;
+        }
+    }
+
+    private static class CountingLookup implements ConverterLookup {
+        private final ConverterLookup lookup;
+        private final List<Class<?>> types = new ArrayList<Class<?>>();
+
+        private CountingLookup(ConverterLookup lookup) {
+            this.lookup = lookup;
+        }
+
+        @SuppressWarnings("rawtypes")
+        public Converter lookupConverterForType(Class type) {
+            types.add(type);
+            return lookup.lookupConverterForType(type);
+        }
+    }
+
     @Before
     public void setUp() {
         xStream = new XStream();
@@ -169,6 +203,20 @@ public class ConstructorConverterTest{
         assertEquals("user name", user.name);
     }
     
+    @Test
+    public void testShouldUseParameterNamesWhenAnnotationHasNoNames() throws Exception {
+        try {
+            Class.forName(getClass().getName() + "_ParanamerUser" + ConstructorMapping.GENERATED_SUFFIX);
+            fail();
+        } catch (ClassNotFoundException expected) {
+        }
+        ConstructorConverter converter = ConstructorConverter.forType(ParanamerUser.class).build();
+        xStream.registerConverter(converter);
+        String xml = "<paranameruser><strangeArgName>reflective</strangeArgName></paranameruser>";
+        ParanamerUser user = (ParanamerUser) xStream.fromXML(xml);
+        assertEquals("reflective", user.name);
+    }
+    
     @Test
     public void testShouldUseParanamerToDiscoverParameters() {
         ConstructorConverter converter = ConstructorConverter.forType(ParanamerUser.class).withParanamer().build();
@@ -217,6 +265,117 @@ public class ConstructorConverterTest{
         assertEquals("buyer name", order.buyer);
     }
 
+    @Test
+    public void testShouldBuildOrderUsingMethodHandles() {
+        Converter converter = ConstructorConverter.forType(Order.class)
+            .withConstructor(String.class, List.class, Calendar.class, String.class)
+            .withAliases("id", "products", "date", "buyer")
+            .withInstantiationStrategy(new MethodHandleInstantiationStrategy())
+            .build();
+        xStream.registerConverter(converter);
+        Order order = (Order) xStream.fromXML("<order><id>666</id><buyer>buyer name</buyer></order>");
+        assertEquals("666", order.id);
+        assertEquals("buyer name", order.buyer);
+        assertNull(order.products);
+    }
+
+    @Test
+    public void testShouldLookUpConverterOfEachParameterOnce() {
+        CountingLookup lookup = new CountingLookup(xStream.getConverterLookup());
+        Converter converter = ConstructorConverter.forType(Order.class)
+            .withConstructor(String.class, List.class, Calendar.class, String.class)
+            .withAliases("id", "products", "date", "buyer")
+            .withMapper(xStream.getMapper())
+            .withConverterLookup(lookup)
+            .build();
+        xStream.registerConverter(converter);
+        String xml = "<order><id>666</id><products><string>first</string></products>"
+                + "<date><time>1352913901530</time><timezone>America/Sao_Paulo</timezone></date></order>";
+
+        xStream.fromXML(xml);
+        Order order = (Order) xStream.fromXML(xml);
+
+        assertEquals(Arrays.<Class<?>>asList(String.class, ArrayList.class, GregorianCalendar.class), lookup.types);
+        assertEquals("666", order.id);
+        assertEquals(1, order.products.size());
+        assertNotNull(order.date);
+    }
+
+    @Test
+    public void testShouldResolveReferencesWithPreResolvedConverters() {
+        xStream.alias("team", Team.class);
+        xStream.registerConverter(ConstructorConverter.forType(Team.class)
+            .withConstructor(User.class, User.class)
+            .withAliases("leader", "member")
+            .withMapper(xStream.getMapper())
+            .withConverterLookup(xStream.getConverterLookup())
+            .build());
+        xStream.registerConverter(ConstructorConverter.forType(User.class)
+            .withConstructor(String.class)
+            .withAliases("name")
+            .build());
+
+        Team team = (Team) xStream.fromXML("<team><leader><name>Ana</name></leader><member reference=\"../leader\"/></team>");
+
+        assertSame(team.leader, team.member);
+    }
+
+    @Test
+    public void testShouldKeepSharedInstancesInIdMode() {
+        Team team = roundTripTeam(XStream.ID_REFERENCES);
+        assertSame(team.leader, team.member);
+    }
+
+    @Test
+    public void testShouldKeepSharedInstancesInAbsoluteXPathMode() {
+        Team team = roundTripTeam(XStream.XPATH_ABSOLUTE_REFERENCES);
+        assertSame(team.leader, team.member);
+    }
+
+    @Test
+    public void testShouldExplainCyclicReferences() {
+        xStream.alias("team", Team.class);
+        xStream.registerConverter(teamConverter());
+        try {
+            xStream.fromXML("<team><leader reference=\"..\"/><member/></team>");
+            fail();
+        } catch (ConversionException e) {
+            assertEquals(Team.class.getName(), e.get("constructed-type"));
+            assertTrue(e.get("hint").indexOf("cyclic") >= 0);
+        }
+    }
+
+    private Team roundTripTeam(int mode) {
+        xStream.setMode(mode);
+        xStream.alias("team", Team.class);
+        xStream.registerConverter(teamConverter());
+        xStream.registerConverter(ConstructorConverter.forType(User.class)
+            .withConstructor(String.class)
+            .withAliases("name")
+            .withMarshalling()
+            .build());
+        User user = new User("Ana");
+        return (Team) xStream.fromXML(xStream.toXML(new Team(user, user)));
+    }
+
+    private Converter teamConverter() {
+        return ConstructorConverter.forType(Team.class)
+            .withConstructor(User.class, User.class)
+            .withAliases("leader", "member")
+            .withMarshalling()
+            .withMapper(xStream.getMapper())
+            .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldNotUseConverterLookupWithoutMapper() {
+        ConstructorConverter.forType(User.class)
+            .withConstructor(String.class)
+            .withAliases("name")
+            .withConverterLookup(xStream.getConverterLookup())
+            .build();
+    }
+
     @Test
     public void testShouldNotMarshall() {
         Converter converter = ConstructorConverter.forType(User.class)
@@ -233,6 +392,54 @@ public class ConstructorConverterTest{
         }
     }
     
+    @Test
+    public void testShouldMarshallConstructorNodes() {
+        Converter converter = ConstructorConverter.forType(User.class)
+            .withConstructor(String.class)
+            .withAliases("name")
+            .withMarshalling()
+            .build();
+        xStream.registerConverter(converter);
+        
+        String xml = xStream.toXML(new User("user name"));
+        assertEquals("<user>\n" +
+                "  <name>user name</name>\n" +
+                "</user>", xml);
+    }
+
+    @Test
+    public void testShouldRoundTripOrderWithBuiltInMarshalling() {
+        Converter orderConverter = ConstructorConverter.forType(Order.class)
+            .withConstructor(String.class, List.class, Calendar.class, String.class)
+            .withAliases("id", "products", "date", "buyer")
+            .withMarshalling()
+            .withMapper(xStream.getMapper())
+            .build();
+        Converter productConverter = ConstructorConverter.forType(Product.class)
+            .withConstructor(String.class)
+            .withAliases("name")
+            .withMarshalling()
+            .build();
+        xStream.registerConverter(orderConverter);
+        xStream.registerConverter(productConverter);
+
+        List<Product> products = new LinkedList<Product>();
+        products.add(new Product("first product"));
+        Calendar date = Calendar.getInstance();
+        Order order = (Order) xStream.fromXML(xStream.toXML(new Order("666", products, date, "buyer name")));
+
+        assertEquals("666", order.id);
+        assertEquals(LinkedList.class, order.products.getClass());
+        assertEquals("first product", order.products.get(0).name);
+        assertEquals(date.getTimeInMillis(), order.date.getTimeInMillis());
+        assertEquals("buyer name", order.buyer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldNotBuildMarshallingWithoutAccessor() {
+        ConstructorConverter.forType(AnnotatedUser.class).withMarshalling().build();
+    }
+
     @Test
     public void testShouldMarshallWithProvidedConverter() {
         Converter reflectionConverter = xStream.getConverterLookup().lookupConverterForType(User.class);
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+
+public class ConstructorConverterWarmUpTest {
+
+    public static class Label {
+        private final String text;
+        private final int size;
+
+        @XStreamUnmarshalling({"text", "size"})
+        protected Label(String text, int size) {
+            this.text = text;
+            this.size = size;
+        }
+    }
+
+    public static class Shelf {
+        private final String name;
+        private final List<Label> labels;
+
+        @XStreamUnmarshalling({"name", "labels"})
+        protected Shelf(String name, List<Label> labels) {
+            this.name = name;
+            this.labels = labels;
+        }
+    }
+
+    public static class Shouting {
+        private final String content;
+
+        @XStreamUnmarshalling({"text"})
+        protected Shouting(String text) {
+            this.content = text;
+        }
+
+        public String getText() {
+            return content + "!";
+        }
+    }
+
+    public static class Badge {
+        private final Label label;
+
+        @XStreamUnmarshalling({"label"})
+        protected Badge(Label label) {
+            this.label = label;
+        }
+    }
+
+    public static class Unreadable {
+        @XStreamUnmarshalling({"hidden"})
+        protected Unreadable(String hidden) {
+        }
+    }
+
+    private XStream xstream;
+
+    @Before
+    public void setUp() {
+        xstream = new XStream();
+    }
+
+    private WarmUpReport warmUp(Class<?>... types) {
+        ConstructorConverterRegistry registry = ConstructorConverterRegistry.forTypes(types)
+            .withMarshalling()
+            .withMapper(xstream.getMapper())
+            .lazy()
+            .build();
+        registry.registerTo(xstream);
+        return ConstructorConverterWarmUp.forRegistry(registry).withXStream(xstream).withRoundTrips(3).run();
+    }
+
+    @Test
+    public void testShouldRoundTripConsistentTypes() {
+        WarmUpReport report = warmUp(Label.class, Shelf.class);
+        assertTrue(report.isConsistent());
+        assertEquals(2, report.getResults(WarmUpReport.Status.READY).size());
+        assertEquals(3, report.getResults().get(0).getRoundTrips());
+    }
+
+    @Test
+    public void testShouldReportConvertersWhichCannotBeBuilt() {
+        WarmUpReport report = warmUp(Label.class, Unreadable.class);
+        List<WarmUpReport.Result> inconsistent = report.getResults(WarmUpReport.Status.INCONSISTENT);
+        assertFalse(report.isConsistent());
+        assertEquals(1, inconsistent.size());
+        assertEquals(Unreadable.class, inconsistent.get(0).getType());
+    }
+
+    @Test
+    public void testShouldReportRoundTripsChangingTheXml() {
+        WarmUpReport report = warmUp(Shouting.class);
+        WarmUpReport.Result result = report.getResults().get(0);
+        assertEquals(WarmUpReport.Status.INCONSISTENT, result.getStatus());
+        assertTrue(result.getMessage().indexOf("warm-up!!") >= 0);
+    }
+
+    @Test
+    public void testShouldReportTypesLinkingUnregisteredAnnotatedTypes() {
+        WarmUpReport report = warmUp(Badge.class);
+        assertEquals(WarmUpReport.Status.INCONSISTENT, report.getResults().get(0).getStatus());
+    }
+
+    @Test
+    public void testShouldOnlyLinkWithoutMarshalling() {
+        ConstructorConverterRegistry registry = ConstructorConverterRegistry.forTypes(Label.class).build();
+        registry.registerTo(xstream);
+        WarmUpReport report = ConstructorConverterWarmUp.forRegistry(registry).withXStream(xstream).withRoundTrips(1).run();
+        assertEquals(WarmUpReport.Status.NOT_ROUND_TRIPPED, report.getResults().get(0).getStatus());
+    }
+
+    @Test
+    public void testShouldStopWhenTheBudgetRunsOut() {
+        ConstructorConverterRegistry registry = ConstructorConverterRegistry.forTypes(Label.class).withMarshalling().build();
+        registry.registerTo(xstream);
+        WarmUpReport report = ConstructorConverterWarmUp.forRegistry(registry)
+            .withXStream(xstream)
+            .withRoundTrips(1)
+            .withTimeBudget(0, TimeUnit.MILLISECONDS)
+            .run();
+        assertEquals(WarmUpReport.Status.TIMED_OUT, report.getResults().get(0).getStatus());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRequireXStreamForRoundTrips() {
+        ConstructorConverterWarmUp.forRegistry(ConstructorConverterRegistry.forTypes(Label.class).build())
+            .withRoundTrips(1)
+            .run();
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+
+import java.lang.reflect.Constructor;
+
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+
+public class ConstructorMetadataCacheTest {
+
+    public static class Currency {
+        private final String code;
+
+        protected Currency(String code) {
+            this.code = code;
+        }
+    }
+
+    private static class PrefixingStrategy implements InstantiationStrategy {
+        private final String prefix;
+
+        private PrefixingStrategy(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public Instantiator instantiatorFor(Constructor<?> constructor) {
+            return new Instantiator() {
+                public Object newInstance(Object[] arguments) {
+                    return new Currency(prefix + arguments[0]);
+                }
+            };
+        }
+    }
+
+    private ConstructorConverter.ConstructorConverterBuilder builder() {
+        return ConstructorConverter.forType(Currency.class)
+            .withConstructor(String.class)
+            .withAliases("code");
+    }
+
+    @Test
+    public void testShouldShareMetadataBetweenConverters() {
+        ConstructorMetadataCache.evict(Currency.class);
+        long misses = ConstructorMetadataCache.getMissCount();
+        long hits = ConstructorMetadataCache.getHitCount();
+
+        XStream tenantA = new XStream();
+        tenantA.alias("currency", Currency.class);
+        tenantA.registerConverter(builder().build());
+        XStream tenantB = new XStream();
+        tenantB.alias("currency", Currency.class);
+        tenantB.registerConverter(builder().build());
+
+        assertEquals(misses + 1, ConstructorMetadataCache.getMissCount());
+        assertEquals(hits + 1, ConstructorMetadataCache.getHitCount());
+        assertEquals("BRL", ((Currency) tenantA.fromXML("<currency><code>BRL</code></currency>")).code);
+        assertEquals("USD", ((Currency) tenantB.fromXML("<currency><code>USD</code></currency>")).code);
+    }
+
+    @Test
+    public void testShouldNotShareMetadataOfDifferentConfigurations() {
+        ConstructorMetadataCache.evict(Currency.class);
+        long misses = ConstructorMetadataCache.getMissCount();
+
+        builder().build();
+        builder().withAliases("iso-code").build();
+        builder().withInstantiationStrategy(new MethodHandleInstantiationStrategy()).build();
+
+        assertEquals(misses + 3, ConstructorMetadataCache.getMissCount());
+    }
+
+    @Test
+    public void testShouldNotShareMetadataOfDifferentlyConfiguredStrategies() {
+        ConstructorMetadataCache.evict(Currency.class);
+        XStream xstream = new XStream();
+        xstream.alias("currency", Currency.class);
+        xstream.registerConverter(builder().withInstantiationStrategy(new PrefixingStrategy("a-")).build());
+        XStream other = new XStream();
+        other.alias("currency", Currency.class);
+        other.registerConverter(builder().withInstantiationStrategy(new PrefixingStrategy("b-")).build());
+
+        assertEquals("a-BRL", ((Currency) xstream.fromXML("<currency><code>BRL</code></currency>")).code);
+        assertEquals("b-BRL", ((Currency) other.fromXML("<currency><code>BRL</code></currency>")).code);
+    }
+
+    @Test
+    public void testShouldShareMetadataOfStatelessStrategies() {
+        ConstructorMetadataCache.evict(Currency.class);
+        long misses = ConstructorMetadataCache.getMissCount();
+
+        builder().withInstantiationStrategy(new MethodHandleInstantiationStrategy()).build();
+        builder().withInstantiationStrategy(new MethodHandleInstantiationStrategy()).build();
+
+        assertEquals(misses + 1, ConstructorMetadataCache.getMissCount());
+    }
+
+    @Test
+    public void testShouldBoundMetadataOfStrategiesComparedByIdentity() {
+        ConstructorMetadataCache.evict(Currency.class);
+        XStream xstream = new XStream();
+        xstream.alias("currency", Currency.class);
+        for (int i = 0; i < ConstructorMetadataCache.MAX_PLANS_PER_TYPE * 2; i++) {
+            xstream.registerConverter(builder().withInstantiationStrategy(new PrefixingStrategy(i + "-")).build());
+        }
+
+        assertEquals(ConstructorMetadataCache.MAX_PLANS_PER_TYPE, ConstructorMetadataCache.sizeOf(Currency.class));
+        assertEquals("63-BRL", ((Currency) xstream.fromXML("<currency><code>BRL</code></currency>")).code);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+
+public class InterningCacheTest {
+
+    public static class Country {
+        private final String code;
+
+        protected Country(String code) {
+            this.code = code;
+        }
+    }
+
+    public static class Language {
+        protected Language(String code) {
+        }
+    }
+
+    private static final Instantiator COUNTRIES = new Instantiator() {
+        public Object newInstance(Object[] arguments) {
+            return new Country((String) arguments[0]);
+        }
+    };
+
+    @Test
+    public void testShouldReturnSameInstanceForEqualArguments() {
+        InterningCache cache = new InterningCache(100);
+        XStream xstream = new XStream();
+        xstream.alias("country", Country.class);
+        xstream.registerConverter(ConstructorConverter.forType(Country.class)
+            .withConstructor(String.class)
+            .withAliases("code")
+            .withInterning(cache)
+            .withSequentialReading()
+            .build());
+
+        Object first = xstream.fromXML("<country><code>BR</code></country>");
+        Object second = xstream.fromXML("<country><code>BR</code></country>");
+        Object other = xstream.fromXML("<country><code>PT</code></country>");
+
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1.0 / 3, cache.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void testShouldSeparateTypes() {
+        InterningCache cache = new InterningCache(100);
+        Object country = cache.intern(Country.class, new Object[] {"PT"}, COUNTRIES);
+        Object language = cache.intern(Language.class, new Object[] {"PT"}, new Instantiator() {
+            public Object newInstance(Object[] arguments) {
+                return new Language((String) arguments[0]);
+            }
+        });
+        assertEquals(Country.class, country.getClass());
+        assertEquals(Language.class, language.getClass());
+    }
+
+    @Test
+    public void testShouldEvictLeastRecentlyUsedInstances() {
+        InterningCache cache = new InterningCache(1);
+        Object brazil = cache.intern(Country.class, new Object[] {"BR"}, COUNTRIES);
+        cache.intern(Country.class, new Object[] {"PT"}, COUNTRIES);
+
+        assertEquals(1, cache.size());
+        assertNotSame(brazil, cache.intern(Country.class, new Object[] {"BR"}, COUNTRIES));
+    }
+
+    @Test
+    public void testShouldCopyReusedArguments() {
+        InterningCache cache = new InterningCache(10);
+        Object[] arguments = {"BR"};
+        Object brazil = cache.intern(Country.class, arguments, COUNTRIES);
+        arguments[0] = "PT";
+        assertEquals("BR", ((Country) cache.intern(Country.class, new Object[] {"BR"}, COUNTRIES)).code);
+        assertSame(brazil, cache.intern(Country.class, new Object[] {"BR"}, COUNTRIES));
+    }
+}
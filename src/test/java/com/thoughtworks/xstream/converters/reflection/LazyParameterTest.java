@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+
+public class LazyParameterTest {
+
+    public static class Item {
+        private final String sku;
+
+        public Item(String sku) {
+            this.sku = sku;
+        }
+    }
+
+    public static class Envelope {
+        private final String id;
+        private final List<Item> items;
+
+        @XStreamUnmarshalling(value = {"id", "items"}, lazy = "items")
+        protected Envelope(String id, List<Item> items) {
+            this.id = id;
+            this.items = items;
+        }
+    }
+
+    private static final String XML = "<envelope><id>E1</id><items><item><sku>a</sku></item>"
+        + "<item reference=\"../item\"/></items></envelope>";
+
+    private XStream xstream;
+
+    @Before
+    public void setUp() {
+        xstream = new XStream();
+        xstream.alias("envelope", Envelope.class);
+        xstream.alias("item", Item.class);
+        xstream.registerConverter(ConstructorConverter.forType(Item.class)
+            .withConstructor(String.class)
+            .withAliases("sku")
+            .withMarshalling()
+            .build());
+    }
+
+    private ConstructorConverter.ConstructorConverterBuilder envelopeConverter() {
+        return ConstructorConverter.forType(Envelope.class)
+            .withMapper(xstream.getMapper())
+            .withConverterLookup(xstream.getConverterLookup());
+    }
+
+    private boolean isLoaded(Object parameter) {
+        return ((LazyParameter) Proxy.getInvocationHandler(parameter)).isLoaded();
+    }
+
+    @Test
+    public void testShouldBuildLazyNodeOnFirstUse() {
+        xstream.registerConverter(envelopeConverter().build());
+        Envelope envelope = (Envelope) xstream.fromXML(XML);
+
+        assertEquals("E1", envelope.id);
+        assertFalse(isLoaded(envelope.items));
+        assertEquals(2, envelope.items.size());
+        assertTrue(isLoaded(envelope.items));
+        assertEquals("a", envelope.items.get(0).sku);
+        assertSame(envelope.items.get(0), envelope.items.get(1));
+    }
+
+    @Test
+    public void testShouldMarshallValueOfLazyNode() {
+        xstream.registerConverter(envelopeConverter().withMarshalling().build());
+        Envelope envelope = (Envelope) xstream.fromXML("<envelope><id>E2</id><items><item><sku>b</sku></item></items></envelope>");
+
+        Envelope copy = (Envelope) xstream.fromXML(xstream.toXML(envelope));
+
+        assertEquals("b", copy.items.get(0).sku);
+    }
+
+    @Test
+    public void testShouldReadEagerlyWhenBuilderDeclaresNoLazyNode() {
+        xstream.registerConverter(envelopeConverter().withLazy().build());
+        Envelope envelope = (Envelope) xstream.fromXML(XML);
+        assertFalse(Proxy.isProxyClass(envelope.items.getClass()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldOnlyDeferInterfaces() {
+        envelopeConverter().withLazy("id").build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRequireConverterLookup() {
+        ConstructorConverter.forType(Envelope.class).build();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.fail;
+
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStreamException;
+
+public class MethodHandleInstantiationStrategyTest {
+
+    private static class Point {
+        private final int x;
+        private final Integer y;
+
+        private Point(int x, Integer y) {
+            if (x < 0) {
+                throw new IllegalArgumentException("negative");
+            }
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    @Test
+    public void testShouldInvokePrivateConstructorUnboxingArguments() throws Exception {
+        Instantiator instantiator = new MethodHandleInstantiationStrategy()
+            .instantiatorFor(Point.class.getDeclaredConstructor(int.class, Integer.class));
+        Point point = (Point) instantiator.newInstance(new Object[] {1, 2});
+        assertEquals(1, point.x);
+        assertEquals(Integer.valueOf(2), point.y);
+    }
+
+    @Test
+    public void testShouldWrapExceptionThrownByConstructor() throws Exception {
+        Instantiator instantiator = new MethodHandleInstantiationStrategy()
+            .instantiatorFor(Point.class.getDeclaredConstructor(int.class, Integer.class));
+        try {
+            instantiator.newInstance(new Object[] {-1, null});
+            fail("should throw exception");
+        } catch (XStreamException e) {
+            assertSame(IllegalArgumentException.class, e.getCause().getClass());
+        }
+    }
+}
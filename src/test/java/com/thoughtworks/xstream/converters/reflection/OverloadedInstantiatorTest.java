@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.util.Calendar;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.XStreamException;
+import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+
+public class OverloadedInstantiatorTest {
+
+    public static class Shipment {
+        private final String id;
+        private final Calendar date;
+        private final List<String> items;
+        private final int priority;
+
+        @XStreamUnmarshalling({"id"})
+        protected Shipment(String id) {
+            this(id, null, null, 0);
+        }
+
+        @XStreamUnmarshalling({"date"})
+        protected Shipment(Calendar date) {
+            this(null, date, null, 0);
+        }
+
+        @XStreamUnmarshalling({"id", "items", "priority"})
+        protected Shipment(String id, List<String> items, int priority) {
+            this(id, null, items, priority);
+        }
+
+        private Shipment(String id, Calendar date, List<String> items, int priority) {
+            this.id = id;
+            this.date = date;
+            this.items = items;
+            this.priority = priority;
+        }
+    }
+
+    public static class Ambiguous {
+        @XStreamUnmarshalling({"value"})
+        protected Ambiguous(String value) {
+        }
+
+        @XStreamUnmarshalling({"value"})
+        protected Ambiguous(int value) {
+        }
+    }
+
+    public static class Tally {
+        @XStreamUnmarshalling({"values"})
+        protected Tally(List<String> values) {
+        }
+
+        @XStreamUnmarshalling({"values", "total"})
+        protected Tally(List<Integer> values, int total) {
+        }
+    }
+
+    private XStream xstream;
+
+    @Before
+    public void setUp() {
+        xstream = new XStream();
+        xstream.alias("shipment", Shipment.class);
+        xstream.registerConverter(ConstructorConverter.forType(Shipment.class).build());
+    }
+
+    @Test
+    public void testShouldChooseConstructorTakingAllNodes() {
+        Shipment shipment = (Shipment) xstream.fromXML("<shipment><id>S1</id><items><string>box</string></items>"
+                + "<priority>2</priority></shipment>");
+        assertEquals("S1", shipment.id);
+        assertEquals(1, shipment.items.size());
+        assertEquals(2, shipment.priority);
+    }
+
+    @Test
+    public void testShouldChooseConstructorWithFewestMissingParameters() {
+        Shipment byId = (Shipment) xstream.fromXML("<shipment><id>S2</id></shipment>");
+        Shipment byDate = (Shipment) xstream.fromXML("<shipment><date><time>1352913901530</time>"
+                + "<timezone>America/Sao_Paulo</timezone></date></shipment>");
+        assertEquals("S2", byId.id);
+        assertNull(byId.items);
+        assertNotNull(byDate.date);
+        assertNull(byDate.id);
+    }
+
+    @Test
+    public void testShouldNotChooseConstructorMissingPrimitives() {
+        try {
+            xstream.fromXML("<shipment><id>S3</id><items/></shipment>");
+            fail();
+        } catch (XStreamException e) {
+            assertTrue(e.getMessage(), e.getMessage().indexOf("[items] together with [id]") >= 0);
+        }
+    }
+
+    @Test
+    public void testShouldNotDropNodesTheChosenConstructorDoesNotTake() {
+        try {
+            xstream.fromXML("<shipment><id>S5</id><date><time>1352913901530</time>"
+                + "<timezone>America/Sao_Paulo</timezone></date></shipment>");
+            fail();
+        } catch (XStreamException e) {
+            assertTrue(e.getMessage(), e.getMessage().indexOf("[date] together with [id]") >= 0);
+        }
+    }
+
+    @Test
+    public void testShouldRegisterOverloadedTypes() {
+        XStream registered = new XStream();
+        registered.alias("shipment", Shipment.class);
+        ConstructorConverterRegistry.forTypes(Shipment.class).build().registerTo(registered);
+        assertEquals("S4", ((Shipment) registered.fromXML("<shipment><id>S4</id></shipment>")).id);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldNotMapOneNodeToDifferentTypes() {
+        ConstructorConverter.forType(Ambiguous.class).build();
+    }
+
+    @Test
+    public void testShouldTypeCollectionsOfOverloads() {
+        UnmarshalPlan plan = ConstructorConverter.forType(Shipment.class)
+            .withMapper(xstream.getMapper())
+            .withTypedCollections()
+            .build()
+            .plan();
+        assertEquals(String.class, plan.elementTypeAt(plan.slotOf("items")));
+    }
+
+    @Test
+    public void testShouldReadCollectionsUntypedWhenOverloadsDisagree() {
+        UnmarshalPlan plan = ConstructorConverter.forType(Tally.class)
+            .withMapper(xstream.getMapper())
+            .withTypedCollections()
+            .build()
+            .plan();
+        assertNull(plan.elementTypeAt(plan.slotOf("values")));
+    }
+}
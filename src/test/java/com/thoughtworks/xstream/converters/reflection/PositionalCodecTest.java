@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.XStreamException;
+import com.thoughtworks.xstream.converters.ConversionException;
+
+public class PositionalCodecTest {
+
+    public static class Line {
+        private final String sku;
+        private final long quantity;
+
+        public Line(String sku, long quantity) {
+            this.sku = sku;
+            this.quantity = quantity;
+        }
+
+        public long getAmount() {
+            return quantity;
+        }
+    }
+
+    public static class Invoice {
+        private final String id;
+        private final int number;
+        private final List<Line> lines;
+        private final Calendar date;
+        private final TimeUnit unit;
+        private final Number total;
+
+        public Invoice(String id, int number, List<Line> lines, Calendar date, TimeUnit unit, Number total) {
+            this.id = id;
+            this.number = number;
+            this.lines = lines;
+            this.date = date;
+            this.unit = unit;
+            this.total = total;
+        }
+    }
+
+    public static class Shipment {
+        private final Line first;
+        private final Line second;
+        private final List<Line> lines;
+
+        public Shipment(Line first, Line second, List<Line> lines) {
+            this.first = first;
+            this.second = second;
+            this.lines = lines;
+        }
+    }
+
+    public static class Folder {
+        private final String name;
+        private final List<Folder> children;
+
+        public Folder(String name, List<Folder> children) {
+            this.name = name;
+            this.children = children;
+        }
+    }
+
+    private XStream xstream;
+
+    @Before
+    public void setUp() {
+        xstream = new XStream();
+        xstream.alias("invoice", Invoice.class);
+        xstream.alias("line", Line.class);
+    }
+
+    private PositionalCodec codec(String quantityName) {
+        ConstructorConverter line = ConstructorConverter.forType(Line.class)
+            .withConstructor(String.class, long.class)
+            .withAliases("sku", quantityName)
+            .withMarshalling()
+            .build();
+        ConstructorConverter invoice = ConstructorConverter.forType(Invoice.class)
+            .withConstructor(String.class, int.class, List.class, Calendar.class, TimeUnit.class, Number.class)
+            .withAliases("id", "number", "lines", "date", "unit", "total")
+            .withMapper(xstream.getMapper())
+            .withTypedCollections()
+            .withMarshalling()
+            .build();
+        return new PositionalCodec(xstream, Arrays.asList(line, invoice));
+    }
+
+    private Invoice invoice() {
+        List<Line> lines = new ArrayList<Line>();
+        lines.add(new Line("a", 2));
+        lines.add(null);
+        Calendar date = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        date.setTimeInMillis(1357516800000L);
+        return new Invoice("I-1", 7, lines, date, TimeUnit.DAYS, new BigDecimal("10.50"));
+    }
+
+    @Test
+    public void testShouldRoundTripPositionally() throws Exception {
+        PositionalCodec codec = codec("quantity");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(invoice(), bytes);
+
+        Invoice read = codec.read(Invoice.class, new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals("I-1", read.id);
+        assertEquals(7, read.number);
+        assertEquals(2, read.lines.size());
+        assertEquals("a", read.lines.get(0).sku);
+        assertEquals(2, read.lines.get(0).quantity);
+        assertNull(read.lines.get(1));
+        assertEquals(1357516800000L, read.date.getTimeInMillis());
+        assertEquals(TimeUnit.DAYS, read.unit);
+        assertEquals(new BigDecimal("10.50"), read.total);
+    }
+
+    @Test
+    public void testShouldRejectStreamOfAnotherSchema() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec("quantity").write(invoice(), bytes);
+        try {
+            codec("amount").read(Invoice.class, new ByteArrayInputStream(bytes.toByteArray()));
+            fail();
+        } catch (XStreamException expected) {
+        }
+    }
+
+    @Test
+    public void testShouldFingerprintReferredTypes() {
+        assertTrue(codec("quantity").fingerprintOf(Invoice.class) != codec("amount").fingerprintOf(Invoice.class));
+        assertEquals(codec("quantity").fingerprintOf(Invoice.class), codec("quantity").fingerprintOf(Invoice.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldOnlyWriteCodecTypes() throws Exception {
+        codec("quantity").write("text", new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void testShouldKeepSharedInstancesShared() throws Exception {
+        ConstructorConverter shipment = ConstructorConverter.forType(Shipment.class)
+            .withConstructor(Line.class, Line.class, List.class)
+            .withAliases("first", "second", "lines")
+            .withMapper(xstream.getMapper())
+            .withTypedCollections()
+            .withMarshalling()
+            .build();
+        ConstructorConverter line = ConstructorConverter.forType(Line.class)
+            .withConstructor(String.class, long.class)
+            .withAliases("sku", "quantity")
+            .withMarshalling()
+            .build();
+        PositionalCodec codec = new PositionalCodec(xstream, Arrays.asList(shipment, line));
+        Line shared = new Line("a", 1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(new Shipment(shared, new Line("b", 2), new ArrayList<Line>(Arrays.asList(shared, shared))), bytes);
+
+        Shipment read = codec.read(Shipment.class, new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals("a", read.first.sku);
+        assertEquals("b", read.second.sku);
+        assertSame(read.first, read.lines.get(0));
+        assertSame(read.first, read.lines.get(1));
+    }
+
+    @Test(expected = ConversionException.class)
+    public void testShouldNotWriteCyclicReferences() throws Exception {
+        ConstructorConverter folder = ConstructorConverter.forType(Folder.class)
+            .withConstructor(String.class, List.class)
+            .withAliases("name", "children")
+            .withMapper(xstream.getMapper())
+            .withTypedCollections()
+            .withMarshalling()
+            .build();
+        List<Folder> children = new ArrayList<Folder>();
+        Folder root = new Folder("root", children);
+        children.add(root);
+        new PositionalCodec(xstream, Arrays.asList(folder)).write(root, new ByteArrayOutputStream());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.ConversionException;
+
+public class SimpleValueParserTest {
+
+    public static class Reading {
+        private final int sensor;
+        private final long timestamp;
+        private final double value;
+        private final boolean valid;
+        private final TimeUnit unit;
+        private final Number raw;
+
+        protected Reading(int sensor, long timestamp, double value, boolean valid, TimeUnit unit, Number raw) {
+            this.sensor = sensor;
+            this.timestamp = timestamp;
+            this.value = value;
+            this.valid = valid;
+            this.unit = unit;
+            this.raw = raw;
+        }
+    }
+
+    private XStream xstream() {
+        XStream xstream = new XStream();
+        xstream.alias("reading", Reading.class);
+        xstream.registerConverter(ConstructorConverter.forType(Reading.class)
+            .withConstructor(int.class, long.class, double.class, boolean.class, TimeUnit.class, Number.class)
+            .withAliases("sensor", "timestamp", "value", "valid", "unit", "raw")
+            .withMapper(xstream.getMapper())
+            .withSimpleValueParsing()
+            .build());
+        return xstream;
+    }
+
+    @Test
+    public void testShouldParseSimpleValuesOfConstructor() {
+        Reading reading = (Reading) xstream().fromXML("<reading><sensor>0x1F</sensor><timestamp>1357516800000</timestamp>"
+                + "<value>21.5</value><valid>TRUE</valid><unit>SECONDS</unit></reading>");
+        assertEquals(31, reading.sensor);
+        assertEquals(1357516800000L, reading.timestamp);
+        assertEquals(21.5, reading.value, 0);
+        assertEquals(true, reading.valid);
+        assertEquals(TimeUnit.SECONDS, reading.unit);
+        assertNull(reading.raw);
+    }
+
+    @Test
+    public void testShouldConvertValuesWithClassAttribute() {
+        Reading reading = (Reading) xstream().fromXML("<reading><sensor>1</sensor><timestamp>0</timestamp><value>0</value>"
+                + "<valid>false</valid><raw class=\"big-decimal\">1.25</raw></reading>");
+        assertEquals(new BigDecimal("1.25"), reading.raw);
+    }
+
+    @Test
+    public void testShouldReportValuesWhichCanNotBeParsed() {
+        try {
+            xstream().fromXML("<reading><sensor>abc</sensor></reading>");
+            fail();
+        } catch (ConversionException e) {
+            assertEquals(NumberFormatException.class, e.getCause().getClass());
+        }
+    }
+
+    @Test
+    public void testShouldOnlyBindSimpleTypes() {
+        assertEquals(Integer.valueOf(255), SimpleValueParser.forType(Integer.class).parse("0xFF"));
+        assertEquals(Character.valueOf('\0'), SimpleValueParser.forType(char.class).parse(""));
+        assertEquals(TimeUnit.DAYS, SimpleValueParser.forType(TimeUnit.class).parse("DAYS"));
+        assertNull(SimpleValueParser.forType(Number.class));
+    }
+}
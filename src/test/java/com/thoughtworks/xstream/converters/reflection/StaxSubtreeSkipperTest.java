@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.xml.QNameMap;
+import com.thoughtworks.xstream.io.xml.StaxDriver;
+import com.thoughtworks.xstream.io.xml.StaxReader;
+import com.thoughtworks.xstream.io.xml.XppDriver;
+
+public class StaxSubtreeSkipperTest {
+
+    public static class Item {
+        private final String sku;
+        private final int amount;
+
+        public Item(String sku, int amount) {
+            this.sku = sku;
+            this.amount = amount;
+        }
+    }
+
+    private static final String XML = "<item><notes><note>first</note><note><text>second</text></note></notes>"
+        + "<sku>a</sku><comment>ignored</comment><amount>3</amount></item>";
+
+    @Test
+    public void testShouldSkipTheWholeNode() {
+        HierarchicalStreamReader reader = new StaxDriver().createReader(new StringReader(XML));
+        reader.moveDown();
+        assertTrue(StaxSubtreeSkipper.skip(reader));
+        reader.moveUp();
+        reader.moveDown();
+        assertEquals("sku", reader.getNodeName());
+        assertEquals("a", reader.getValue());
+        reader.moveUp();
+    }
+
+    @Test
+    public void testShouldSkipAfterLookingAhead() {
+        HierarchicalStreamReader reader = new StaxDriver().createReader(new StringReader(XML));
+        assertTrue(reader.hasMoreChildren());
+        reader.moveDown();
+        assertTrue(StaxSubtreeSkipper.skip(reader));
+        reader.moveUp();
+        assertTrue(reader.hasMoreChildren());
+        reader.moveDown();
+        assertEquals("sku", reader.getNodeName());
+    }
+
+    @Test
+    public void testShouldLeaveOtherReadersUntouched() {
+        HierarchicalStreamReader reader = new XppDriver().createReader(new StringReader(XML));
+        reader.moveDown();
+        assertFalse(StaxSubtreeSkipper.skip(reader));
+        reader.moveUp();
+        reader.moveDown();
+        assertEquals("sku", reader.getNodeName());
+    }
+
+    private static class TextCountingReader extends StreamReaderDelegate {
+        private int texts;
+
+        private TextCountingReader(XMLStreamReader reader) {
+            super(reader);
+        }
+
+        @Override
+        public String getText() {
+            texts++;
+            return super.getText();
+        }
+    }
+
+    private int textsReadBy(ConstructorConverter converter) throws XMLStreamException {
+        XStream xstream = new XStream(new StaxDriver());
+        xstream.alias("item", Item.class);
+        xstream.registerConverter(converter);
+        TextCountingReader in = new TextCountingReader(XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(XML)));
+        Item item = (Item) xstream.unmarshal(new StaxReader(new QNameMap(), in));
+        assertEquals("a", item.sku);
+        assertEquals(3, item.amount);
+        return in.texts;
+    }
+
+    private ConstructorConverter.ConstructorConverterBuilder itemConverter() {
+        return ConstructorConverter.forType(Item.class)
+            .withConstructor(String.class, int.class)
+            .withAliases("sku", "amount");
+    }
+
+    @Test
+    public void testShouldIgnoreUnmappedNodesWithStax() throws XMLStreamException {
+        assertEquals(2, textsReadBy(itemConverter().withStaxSkipping().build()));
+    }
+
+    @Test
+    public void testShouldLeaveUnmappedNodesToTheReaderByDefault() throws XMLStreamException {
+        assertEquals(5, textsReadBy(itemConverter().build()));
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.xml.XppDriver;
+
+public class StreamingUnmarshallerTest {
+
+    private static final String PRODUCTS = "<products>" +
+            "<product><name>first</name><price>1.5</price></product>" +
+            "<product><name>second</name><price>2</price></product>" +
+            "<product><price>3</price><name>third</name></product>" +
+        "</products>";
+
+    private XStream xStream;
+    private ConstructorConverter converter;
+
+    public static class Product {
+        private final String name;
+        private final double price;
+
+        protected Product(String name, double price) {
+            this.name = name;
+            this.price = price;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        xStream = new XStream();
+        converter = ConstructorConverter.forType(Product.class)
+            .withConstructor(String.class, double.class)
+            .withAliases("name", "price")
+            .build();
+    }
+
+    private StreamingUnmarshaller<Product> products() {
+        HierarchicalStreamReader reader = new XppDriver().createReader(new StringReader(PRODUCTS));
+        return new StreamingUnmarshaller<Product>(xStream, converter, Product.class, reader);
+    }
+
+    @Test
+    public void testShouldIterateOverElements() {
+        StreamingUnmarshaller<Product> products = products();
+        assertEquals("first", products.next().name);
+        assertEquals(2.0, products.next().price);
+        assertEquals("third", products.next().name);
+        assertFalse(products.hasNext());
+    }
+
+    @Test
+    public void testShouldHandElementsInBatches() {
+        final List<Integer> sizes = new ArrayList<Integer>();
+        final List<String> names = new ArrayList<String>();
+        products().forEachBatch(2, new StreamingUnmarshaller.BatchHandler<Product>() {
+            public void handle(List<Product> batch) {
+                sizes.add(batch.size());
+                for (Product product : batch) {
+                    names.add(product.name);
+                }
+            }
+        });
+        assertEquals(2, sizes.size());
+        assertEquals(Integer.valueOf(2), sizes.get(0));
+        assertEquals(Integer.valueOf(1), sizes.get(1));
+        assertEquals("third", names.get(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldNotStreamTypeOfAnotherConverter() {
+        HierarchicalStreamReader reader = new XppDriver().createReader(new StringReader(PRODUCTS));
+        new StreamingUnmarshaller<String>(xStream, converter, String.class, reader);
+    }
+}
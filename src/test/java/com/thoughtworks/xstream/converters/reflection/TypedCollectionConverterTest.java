@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.fail;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+
+public class TypedCollectionConverterTest {
+
+    public static class Item {
+        private final String sku;
+
+        protected Item(String sku) {
+            this.sku = sku;
+        }
+    }
+
+    public static class SpecialItem extends Item {
+        protected SpecialItem(String sku) {
+            super(sku);
+        }
+    }
+
+    public static class Cart {
+        private final List<Item> items;
+        private final Set<? extends Item> gifts;
+        private final Collection<Item> backup;
+
+        protected Cart(List<Item> items, Set<? extends Item> gifts, Collection<Item> backup) {
+            this.items = items;
+            this.gifts = gifts;
+            this.backup = backup;
+        }
+    }
+
+    private XStream xstream;
+
+    @Before
+    public void setUp() {
+        xstream = new XStream();
+        xstream.alias("cart", Cart.class);
+        xstream.alias("item", Item.class);
+        xstream.alias("special", SpecialItem.class);
+        xstream.registerConverter(ConstructorConverter.forType(Item.class)
+            .withConstructor(String.class)
+            .withAliases("sku")
+            .build());
+    }
+
+    private ConstructorConverter.ConstructorConverterBuilder cartConverter() {
+        return ConstructorConverter.forType(Cart.class)
+            .withConstructor(List.class, Set.class, Collection.class)
+            .withAliases("items", "gifts", "backup")
+            .withMapper(xstream.getMapper())
+            .withTypedCollections();
+    }
+
+    @Test
+    public void testShouldConvertElementsToTheDeclaredType() {
+        xstream.registerConverter(cartConverter().withCollectionCapacity(16).build());
+        Cart cart = (Cart) xstream.fromXML("<cart><items><item><sku>a</sku></item><item><sku>b</sku></item></items>"
+                + "<gifts><item><sku>c</sku></item></gifts></cart>");
+        assertEquals(2, cart.items.size());
+        assertEquals("b", cart.items.get(1).sku);
+        assertEquals("c", ((Item) cart.gifts.iterator().next()).sku);
+    }
+
+    @Test
+    public void testShouldResolveOtherElementsByName() {
+        xstream.registerConverter(ConstructorConverter.forType(SpecialItem.class)
+            .withConstructor(String.class)
+            .withAliases("sku")
+            .build());
+        xstream.registerConverter(cartConverter().build());
+        Cart cart = (Cart) xstream.fromXML("<cart><items><special><sku>a</sku></special><null/></items></cart>");
+        assertEquals(SpecialItem.class, cart.items.get(0).getClass());
+        assertNull(cart.items.get(1));
+    }
+
+    @Test
+    public void testShouldKeepCollectionsAsTargetOfReferences() {
+        xstream.registerConverter(cartConverter().build());
+        Cart cart = (Cart) xstream.fromXML("<cart><items><item><sku>a</sku></item></items><backup reference=\"../items\"/></cart>");
+        assertSame(cart.items, cart.backup);
+    }
+
+    @Test
+    public void testShouldWrapUnmodifiableCollections() {
+        xstream.registerConverter(cartConverter().withUnmodifiableCollections().build());
+        Cart cart = (Cart) xstream.fromXML("<cart><items><item><sku>a</sku></item></items></cart>");
+        try {
+            cart.items.add(new Item("b"));
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void testShouldFindElementTypeOfGenericParameters() throws Exception {
+        java.lang.reflect.Type[] types = Cart.class.getDeclaredConstructor(List.class, Set.class, Collection.class)
+            .getGenericParameterTypes();
+        assertEquals(Item.class, TypedCollectionConverter.elementTypeOf(types[0]));
+        assertEquals(Item.class, TypedCollectionConverter.elementTypeOf(types[1]));
+        assertNull(TypedCollectionConverter.elementTypeOf(String.class));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+
+import java.util.Calendar;
+
+import org.junit.Test;
+
+public class UnmarshalPlanTest {
+
+    @Test
+    public void testShouldResolveSlotOfEachName() {
+        UnmarshalPlan plan = new UnmarshalPlan(new String[] {"id", "date", "buyer"},
+                new Class<?>[] {String.class, Calendar.class, String.class}, null);
+        assertEquals(0, plan.slotOf("id"));
+        assertEquals(1, plan.slotOf("date"));
+        assertEquals(2, plan.slotOf("buyer"));
+        assertEquals(Calendar.class, plan.parameterTypeAt(1));
+    }
+
+    @Test
+    public void testShouldNotMapUnknownNames() {
+        UnmarshalPlan plan = new UnmarshalPlan(new String[] {"id"}, new Class<?>[] {String.class}, null);
+        assertEquals(UnmarshalPlan.UNMAPPED, plan.slotOf("useless"));
+    }
+
+    @Test
+    public void testShouldKeepFirstSlotOfRepeatedName() {
+        UnmarshalPlan plan = new UnmarshalPlan(new String[] {"name", "name"},
+                new Class<?>[] {String.class, String.class}, null);
+        assertEquals(0, plan.slotOf("name"));
+    }
+
+    @Test
+    public void testShouldInternNames() {
+        UnmarshalPlan plan = new UnmarshalPlan(new String[] {new String("id")}, new Class<?>[] {String.class}, null);
+        assertSame("id", plan.nameAt(0));
+        assertEquals(0, plan.slotOf("id"));
+        assertEquals(0, plan.slotOf(new String("id")));
+    }
+
+    @Test
+    public void testShouldResolveInternedRepeatedNameToFirstSlot() {
+        UnmarshalPlan plan = new UnmarshalPlan(new String[] {"id", "name", "name"},
+                new Class<?>[] {String.class, String.class, String.class}, null);
+        assertEquals(1, plan.slotOf("name"));
+    }
+}
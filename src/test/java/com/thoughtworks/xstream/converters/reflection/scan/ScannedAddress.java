@@ -0,0 +1,27 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection.scan;
+
+import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+
+public class ScannedAddress {
+
+    private final String street;
+
+    @XStreamUnmarshalling
+    private ScannedAddress(String street) {
+        this.street = street;
+    }
+
+    public String getStreet() {
+        return street;
+    }
+}
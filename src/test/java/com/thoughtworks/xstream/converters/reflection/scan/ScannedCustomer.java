@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2013 XStream Committers.
+ * All rights reserved.
+ *
+ * The software in this package is published under the terms of the BSD
+ * style license a copy of which has been included with this distribution in
+ * the LICENSE.txt file.
+ * 
+ * Created on 07. January 2013 by Leonardo Wolter & Francisco Sokol & Guilherme Silveira
+ */
+package com.thoughtworks.xstream.converters.reflection.scan;
+
+import com.thoughtworks.xstream.annotation.XStreamUnmarshalling;
+
+public class ScannedCustomer {
+
+    private final String name;
+    private final ScannedAddress address;
+
+    @XStreamUnmarshalling({"customer-name", "address"})
+    ScannedCustomer(String name, ScannedAddress address) {
+        this.name = name;
+        this.address = address;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ScannedAddress getAddress() {
+        return address;
+    }
+}
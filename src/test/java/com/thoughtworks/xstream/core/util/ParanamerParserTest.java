@@ -11,12 +11,28 @@
 package com.thoughtworks.xstream.core.util;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.net.URLClassLoader;
 
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Assume;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class ParanamerParserTest{
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
     
     @SuppressWarnings("unused")
     private static class SampleClass {
@@ -24,10 +40,63 @@ public class ParanamerParserTest{
         }
     }
 
+    @SuppressWarnings("unused")
+    private static class HandIndexedClass {
+        private HandIndexedClass(int quantity, String name) {
+        }
+    }
+
     @Test
     public void testShouldFindParameters() throws Exception {
         Constructor<?> c = SampleClass.class.getDeclaredConstructors()[0];
         String[] paramsFor = new ParanamerParser().paramsFor(c);
         assertEquals(2, paramsFor.length);
     }
+
+    @Test
+    public void testShouldNotShareCachedNames() throws Exception {
+        Constructor<?> c = SampleClass.class.getDeclaredConstructors()[0];
+        String[] first = new ParanamerParser().paramsFor(c);
+        String[] second = new ParanamerParser().paramsFor(c);
+        assertEquals("arg1", second[0]);
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void testShouldPreferIndexOverBytecodeNames() throws Exception {
+        Constructor<?> c = HandIndexedClass.class.getDeclaredConstructor(int.class, String.class);
+        String[] paramsFor = new ParanamerParser().paramsFor(c);
+        assertEquals("amount", paramsFor[0]);
+        assertEquals("label", paramsFor[1]);
+    }
+
+    @Test
+    public void testShouldReadNamesFromParametersMetadata() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull(compiler);
+        File folder = temporaryFolder.newFolder("parameters");
+        File source = new File(folder, "ParametersClass.java");
+        write(source, "public class ParametersClass { public ParametersClass(int quantity, String name) { } }");
+        // without debug information Paranamer cannot find the names, only the -parameters metadata holds them
+        assertEquals(0, compiler.run(null, null, null, "-g:none", "-parameters", "-d", folder.getPath(), source.getPath()));
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[] {folder.toURI().toURL()}, null);
+        try {
+            Constructor<?> c = classLoader.loadClass("ParametersClass").getConstructor(int.class, String.class);
+            String[] paramsFor = new ParanamerParser().paramsFor(c);
+            assertEquals("quantity", paramsFor[0]);
+            assertEquals("name", paramsFor[1]);
+        } finally {
+            classLoader.close();
+        }
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
 }